@@ -0,0 +1,60 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the auto completion of a typed domain prefix, once with the trie and once with a linear scan of the domain list.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CompletionBenchmark {
+    @Param({"17", "1000", "10000"})
+    public int domainCount;
+
+    @Param({"g", "hotm", "zz"})
+    public String prefix;
+
+    private String[] domains;
+    private DomainTrie trie;
+
+    @Setup
+    public void setUp() {
+        domains = TypoBenchmark.createDomains(domainCount);
+        trie = new DomainTrie(domains);
+    }
+
+    @Benchmark
+    public String trie() {
+        return trie.complete(prefix);
+    }
+
+    @Benchmark
+    public String linearScan() {
+        for(String domain : domains) {
+            if(domain.startsWith(prefix)) {
+                return domain;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the syntax check and the domain extraction which run before every lookup.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SyntaxBenchmark {
+    @Param({"john.doe@example.com", "jörg@bücher.de", "john.doe.example.com", "john@doe@example.com"})
+    public String address;
+
+    @Benchmark
+    public int scan() {
+        return AddressSyntax.scan(address);
+    }
+
+    @Benchmark
+    public String getDomain() {
+        return MailChecker.getDomain(address);
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the typo detection against small and large domain lists, once with the index and once with a linear scan which finds
+ * the same closest domain.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TypoBenchmark {
+    /**
+     * The default domain list of the MailChecker.
+     */
+    static final String[] DEFAULT_DOMAINS = {"web.de", "gmx.de", "gmx.com", "gmx.net", "freenet.net", "hotmail.com", "gmail.com",
+            "googlemail.com", "live.de", "live.com", "hotmail.de", "aol.com", "t-online.de", "hushmail.com", "uni.de", "yahoo.com",
+            "yahoo.de"};
+    private static final String[] TLDS = {"de", "com", "net", "org", "at", "ch", "fr", "it", "nl", "es"};
+
+    @Param({"17", "1000", "10000"})
+    public int domainCount;
+
+    @Param({"gmial.com", "hotmial.de", "unrelated-domain.org"})
+    public String domain;
+
+    private String[] domains;
+    private DomainIndex index;
+
+    @Setup
+    public void setUp() {
+        domains = createDomains(domainCount);
+        index = new DomainIndex(domains);
+    }
+
+    @Benchmark
+    public String index() {
+        return index.closest(domain, 2);
+    }
+
+    @Benchmark
+    public String linearScan() {
+        String closest = null;
+        int max = 2;
+        for(String d : domains) {
+            int distance = MailChecker.damerauLevenshteinDistance(d, domain, max);
+            if(distance <= max) {
+                closest = d;
+                if(distance == 0) {
+                    break;
+                }
+                max = distance - 1;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Creates a domain list which starts with the default domains and is filled up with random provider names.
+     *
+     * @param count the count of domains.
+     * @return the domain list.
+     */
+    static String[] createDomains(int count) {
+        String[] domains = new String[Math.max(count, DEFAULT_DOMAINS.length)];
+        System.arraycopy(DEFAULT_DOMAINS, 0, domains, 0, DEFAULT_DOMAINS.length);
+        Random random = new Random(42);
+        for(int i = DEFAULT_DOMAINS.length; i < domains.length; i++) {
+            StringBuilder name = new StringBuilder();
+            int length = 4 + random.nextInt(9);
+            for(int j = 0; j < length; j++) {
+                name.append((char) ('a' + random.nextInt(26)));
+            }
+            domains[i] = name.append('.').append(TLDS[random.nextInt(TLDS.length)]).toString();
+        }
+        return domains;
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xbill.DNS.Type;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete validations against a {@link ScriptedDnsResolver} with a configurable latency. Without the cache every
+ * invocation pays the full lookup chain.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValidateBenchmark {
+    /**
+     * The latency of each DNS query in milliseconds.
+     */
+    @Param({"0", "1", "20"})
+    public long latency;
+
+    /**
+     * <code>false</code> clears the cache before each invocation.
+     */
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private DnsResolver previous;
+
+    @Setup
+    public void setUp() {
+        previous = MailChecker.getResolver();
+        MailChecker.setResolver(new ScriptedDnsResolver()
+                .mx("example.com", "mx1.example.com", "mx2.example.com")
+                .timeout("mx1.example.com", Type.A)
+                .address("mx2.example.com")
+                .noMx("nomx.example.com")
+                .latency(latency)
+                .setTimeout(latency * 5));
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        if(!cached) {
+            MailChecker.getCache().clear();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        MailChecker.setResolver(previous);
+    }
+
+    @Benchmark
+    public ValidationResult valid() {
+        return MailChecker.check("john.doe@example.com");
+    }
+
+    /**
+     * A typo which is not part of the {@link TypoMemo}, so it pays the failed MX lookup and the search of the domain index.
+     */
+    @Benchmark
+    public ValidationResult typo() {
+        return MailChecker.check("john.doe@gmaik.com");
+    }
+
+    /**
+     * A typo which is answered by the {@link TypoMemo} without any lookup.
+     */
+    @Benchmark
+    public ValidationResult knownTypo() {
+        return MailChecker.check("john.doe@gmial.com");
+    }
+
+    @Benchmark
+    public ValidationResult noMxRecord() {
+        return MailChecker.check("john.doe@nomx.example.com");
+    }
+
+    @Benchmark
+    public ValidationResult wrongSchema() {
+        return MailChecker.check("john.doe.example.com");
+    }
+}
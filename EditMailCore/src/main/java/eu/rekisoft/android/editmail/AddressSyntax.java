@@ -0,0 +1,311 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+/**
+ * Single pass syntax check of mail addresses following RFC 5322 and RFC 6531: a dot-atom or quoted local part of at most 64 octets,
+ * an <code>@</code> and a domain of at most 253 characters whose labels have at most 63 characters and neither start nor end with a
+ * hyphen. Non ASCII characters are accepted in both parts, the domain is converted with IDN later on. Domain literals like
+ * <code>[192.0.2.1]</code> are not supported, since they cannot be checked with DNS lookups.
+ * <p/>
+ * The result of a scan is a single int which holds the category and the position, so the check does not allocate anything and can
+ * run on every key stroke:
+ * <pre>
+ * int result = AddressSyntax.scan(mail);
+ * if(AddressSyntax.category(result) != AddressSyntax.VALID) {
+ *     mark(AddressSyntax.position(result));
+ * }
+ * </pre>
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public final class AddressSyntax {
+    /**
+     * The address is valid, the position is the one of the <code>@</code>.
+     */
+    public static final int VALID = 0;
+    /**
+     * The address is empty.
+     */
+    public static final int EMPTY = 1;
+    /**
+     * The address has no <code>@</code>, the position is the end of the address.
+     */
+    public static final int MISSING_AT = 2;
+    /**
+     * The address has more than one <code>@</code>, the position is the one of the second <code>@</code>.
+     */
+    public static final int EXTRA_AT = 3;
+    /**
+     * The local part is empty.
+     */
+    public static final int LOCAL_EMPTY = 4;
+    /**
+     * The local part is longer than 64 octets, the position is the one of the <code>@</code>.
+     */
+    public static final int LOCAL_TOO_LONG = 5;
+    /**
+     * The local part contains a character which is not allowed.
+     */
+    public static final int LOCAL_INVALID_CHAR = 6;
+    /**
+     * The local part starts or ends with a dot or contains two dots in a row.
+     */
+    public static final int LOCAL_DOT = 7;
+    /**
+     * The quoted local part is not terminated.
+     */
+    public static final int UNTERMINATED_QUOTE = 8;
+    /**
+     * The domain is empty, the position is the end of the address.
+     */
+    public static final int DOMAIN_EMPTY = 9;
+    /**
+     * The domain is longer than 253 characters.
+     */
+    public static final int DOMAIN_TOO_LONG = 10;
+    /**
+     * The domain contains a character which is not allowed.
+     */
+    public static final int DOMAIN_INVALID_CHAR = 11;
+    /**
+     * The domain has just one label like <code>localhost</code>, the position is the end of the address.
+     */
+    public static final int DOMAIN_NO_DOT = 12;
+    /**
+     * The domain starts or ends with a dot or contains two dots in a row.
+     */
+    public static final int LABEL_EMPTY = 13;
+    /**
+     * A label of the domain is longer than 63 characters, the position is the first character behind the limit.
+     */
+    public static final int LABEL_TOO_LONG = 14;
+    /**
+     * A label of the domain starts or ends with a hyphen.
+     */
+    public static final int LABEL_HYPHEN = 15;
+
+    private static final int MAX_LOCAL_OCTETS = 64;
+    private static final int MAX_DOMAIN_LENGTH = 253;
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final String ATEXT_SPECIALS = "!#$%&'*+-/=?^_`{|}~";
+
+    private AddressSyntax() {
+    }
+
+    /**
+     * Checks the syntax of a mail address.
+     *
+     * @param mail the mail address without surrounding white spaces.
+     * @return the category and the position of the first error, use {@link #category(int)} and {@link #position(int)} for reading
+     * them.
+     */
+    public static int scan(CharSequence mail) {
+        int length = mail.length();
+        if(length == 0) {
+            return result(EMPTY, 0);
+        }
+        int i = 0;
+        int octets = 0;
+        if(mail.charAt(0) == '"') {
+            boolean closed = false;
+            for(i = 1; i < length && !closed; i++) {
+                char c = mail.charAt(i);
+                if(c == '"') {
+                    closed = true;
+                } else if(c < 0x20 || c == 0x7f) {
+                    return result(LOCAL_INVALID_CHAR, i);
+                } else if(c == '\\') {
+                    if(++i == length) {
+                        break;
+                    }
+                    octets += 1 + octets(mail.charAt(i));
+                } else {
+                    octets += octets(c);
+                }
+            }
+            if(!closed) {
+                return result(UNTERMINATED_QUOTE, length);
+            } else if(i == length) {
+                return result(MISSING_AT, length);
+            } else if(mail.charAt(i) != '@') {
+                return result(LOCAL_INVALID_CHAR, i);
+            }
+            octets += 2;
+        } else {
+            char previous = '.';
+            for(; i < length; i++) {
+                char c = mail.charAt(i);
+                if(c == '@') {
+                    break;
+                } else if(c == '.') {
+                    if(previous == '.') {
+                        return result(LOCAL_DOT, i);
+                    }
+                } else if(!isAtext(c)) {
+                    return result(LOCAL_INVALID_CHAR, i);
+                }
+                octets += octets(c);
+                previous = c;
+            }
+            if(i == length) {
+                return result(MISSING_AT, length);
+            } else if(i == 0) {
+                return result(LOCAL_EMPTY, 0);
+            } else if(previous == '.') {
+                return result(LOCAL_DOT, i - 1);
+            }
+        }
+        if(octets > MAX_LOCAL_OCTETS) {
+            return result(LOCAL_TOO_LONG, i);
+        }
+        int at = i++;
+        if(i == length) {
+            return result(DOMAIN_EMPTY, length);
+        }
+        int labels = 1;
+        int labelStart = i;
+        for(; i <= length; i++) {
+            // the end of the address terminates the last label like a dot
+            char c = i < length ? mail.charAt(i) : '.';
+            if(isDot(c)) {
+                if(i == labelStart) {
+                    return result(LABEL_EMPTY, i == length ? i - 1 : i);
+                } else if(i - labelStart > MAX_LABEL_LENGTH) {
+                    return result(LABEL_TOO_LONG, labelStart + MAX_LABEL_LENGTH);
+                } else if(mail.charAt(i - 1) == '-') {
+                    return result(LABEL_HYPHEN, i - 1);
+                } else if(i < length) {
+                    labels++;
+                }
+                labelStart = i + 1;
+            } else if(c == '-') {
+                if(i == labelStart) {
+                    return result(LABEL_HYPHEN, i);
+                }
+            } else if(c == '@') {
+                return result(EXTRA_AT, i);
+            } else if(!isDomainChar(c)) {
+                return result(DOMAIN_INVALID_CHAR, i);
+            }
+        }
+        if(length - at - 1 > MAX_DOMAIN_LENGTH) {
+            return result(DOMAIN_TOO_LONG, at + 1 + MAX_DOMAIN_LENGTH);
+        } else if(labels < 2) {
+            return result(DOMAIN_NO_DOT, length);
+        }
+        return result(VALID, at);
+    }
+
+    /**
+     * @param result the result of {@link #scan(CharSequence)}.
+     * @return the category of the result like {@link #VALID} or {@link #MISSING_AT}.
+     */
+    public static int category(int result) {
+        return result & 0xff;
+    }
+
+    /**
+     * @param result the result of {@link #scan(CharSequence)}.
+     * @return the position of the first error or of the <code>@</code> if the address is valid.
+     */
+    public static int position(int result) {
+        return result >>> 8;
+    }
+
+    /**
+     * Checks if an error category just means that the user did not finish typing.
+     *
+     * @param category the category of the result.
+     * @return <code>true</code> if a part of the address is missing.
+     */
+    public static boolean isIncomplete(int category) {
+        switch(category) {
+            case EMPTY:
+            case MISSING_AT:
+            case LOCAL_EMPTY:
+            case DOMAIN_EMPTY:
+            case DOMAIN_NO_DOT:
+            case UNTERMINATED_QUOTE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks if the given domain contains only ASCII characters, so that it does not need to be converted with IDN.
+     *
+     * @param domain the domain.
+     * @return <code>true</code> if all characters are ASCII characters.
+     */
+    static boolean isAscii(CharSequence domain) {
+        for(int i = 0; i < domain.length(); i++) {
+            if(domain.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int result(int category, int position) {
+        return position << 8 | category;
+    }
+
+    /**
+     * @param c the character.
+     * @return the count of octets of the character in UTF-8, surrogates count half of their pair.
+     */
+    private static int octets(char c) {
+        if(c < 0x80) {
+            return 1;
+        } else if(c < 0x800 || c >= 0xd800 && c <= 0xdfff) {
+            return 2;
+        }
+        return 3;
+    }
+
+    /**
+     * @param c the character.
+     * @return <code>true</code> if the character is allowed in a dot-atom.
+     */
+    private static boolean isAtext(char c) {
+        if(c >= 0x80) {
+            return isPrintable(c);
+        }
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || ATEXT_SPECIALS.indexOf(c) >= 0;
+    }
+
+    /**
+     * @param c the character.
+     * @return <code>true</code> if the character is allowed in a label, hyphens and dots are handled separately.
+     */
+    private static boolean isDomainChar(char c) {
+        if(c >= 0x80) {
+            return isPrintable(c);
+        }
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9';
+    }
+
+    /**
+     * @param c the non ASCII character.
+     * @return <code>true</code> if the character is neither a white space nor a control character.
+     */
+    private static boolean isPrintable(char c) {
+        return !Character.isSpaceChar(c) && !Character.isISOControl(c);
+    }
+
+    /**
+     * @param c the character.
+     * @return <code>true</code> if the character separates labels, IDN also accepts the ideographic and full width dots.
+     */
+    private static boolean isDot(char c) {
+        return c == '.' || c == '\u3002' || c == '\uff0e' || c == '\uff61';
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import eu.rekisoft.android.editmail.MailChecker.AddressStatus;
+import eu.rekisoft.android.editmail.MailChecker.Cancellation;
+import eu.rekisoft.android.editmail.MailChecker.ResultListener;
+import eu.rekisoft.android.editmail.MailChecker.Verdict;
+
+/**
+ * Implementation of {@link MailChecker#validateAsync(String, java.util.concurrent.Executor, long, ResultListener)}. The check gives
+ * up between its lookups as soon as the future was canceled or the deadline has passed, in the latter case the status is unknown.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+final class AsyncCheck extends FutureTask<ValidationResult> {
+    private final String mail;
+    private final ResultListener listener;
+
+    /**
+     * Creates a new AsyncCheck.
+     *
+     * @param mail     the input mail address.
+     * @param timeout  the time in milliseconds after which the check gives up, zero for no limit.
+     * @param listener the listener which receives the result or <code>null</code>.
+     */
+    AsyncCheck(String mail, long timeout, ResultListener listener) {
+        this(mail, new Signal(timeout), listener);
+    }
+
+    private AsyncCheck(final String mail, final Signal signal, ResultListener listener) {
+        super(new Callable<ValidationResult>() {
+            @Override
+            public ValidationResult call() throws Exception {
+                return MailChecker.check(mail, signal);
+            }
+        });
+        signal.task = this;
+        this.mail = mail;
+        this.listener = listener;
+    }
+
+    @Override
+    protected void done() {
+        if(listener == null || isCancelled()) {
+            return;
+        }
+        ValidationResult result;
+        try {
+            result = get();
+        } catch(InterruptedException e) {
+            // cannot happen, the task is done
+            return;
+        } catch(ExecutionException e) {
+            result = new ValidationResult(mail, null, new Verdict(AddressStatus.unknown, null), 0);
+        }
+        listener.onResult(result);
+    }
+
+    /**
+     * The signal for giving up, it is set by canceling the task or by the deadline.
+     */
+    private static final class Signal extends Cancellation {
+        private final long deadline;
+        volatile FutureTask<?> task;
+
+        Signal(long timeout) {
+            deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+        }
+
+        @Override
+        boolean isCanceled() {
+            FutureTask<?> task = this.task;
+            return task != null && task.isCancelled() || deadline != 0 && System.nanoTime() - deadline > 0;
+        }
+    }
+}
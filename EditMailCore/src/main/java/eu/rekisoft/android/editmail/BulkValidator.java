@@ -0,0 +1,203 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import eu.rekisoft.android.editmail.MailChecker.AddressStatus;
+import eu.rekisoft.android.editmail.MailChecker.BulkListener;
+import eu.rekisoft.android.editmail.MailChecker.Verdict;
+
+/**
+ * Implementation of {@link MailChecker#validateAll(Iterator, int, boolean, BulkListener)}. The input is read lazily, each domain
+ * which is currently checked is shared by all addresses with the same domain. The verdicts of the finished domains are kept for the
+ * rest of the batch, so the later addresses of a domain neither wait for a thread nor query the {@link DomainCache} again.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+final class BulkValidator {
+    /**
+     * The count of addresses per parallel check which may wait for their delivery before the reading of the input pauses.
+     */
+    private static final int BUFFER_PER_THREAD = 256;
+    /**
+     * The count of finished domains whose verdicts are kept for the later addresses of the batch.
+     */
+    private static final int MAX_CHECKED = 10000;
+
+    private final Iterator<String> addresses;
+    private final int parallelism;
+    private final boolean inputOrder;
+    private final BulkListener listener;
+    private final BlockingQueue<Check> done = new LinkedBlockingQueue<Check>();
+    private final Map<String, Check> running = new HashMap<String, Check>();
+    private final Map<String, Verdict> checked = new LinkedHashMap<String, Verdict>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Verdict> eldest) {
+            return size() > MAX_CHECKED;
+        }
+    };
+    private final LinkedList<Pending> ordered = new LinkedList<Pending>();
+    private int buffered;
+
+    /**
+     * Creates a new BulkValidator.
+     *
+     * @param addresses   the input mail addresses.
+     * @param parallelism the maximal count of domains which are checked at the same time.
+     * @param inputOrder  <code>true</code> if the results should be delivered in the order of the input.
+     * @param listener    the listener which receives the results.
+     */
+    BulkValidator(Iterator<String> addresses, int parallelism, boolean inputOrder, BulkListener listener) {
+        this.addresses = addresses;
+        this.parallelism = Math.max(1, parallelism);
+        this.inputOrder = inputOrder;
+        this.listener = listener;
+    }
+
+    /**
+     * Checks all addresses and delivers the results on the calling thread.
+     *
+     * @throws InterruptedException if the calling thread was interrupted while waiting for results.
+     */
+    void run() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, MailChecker.daemonThreads("BulkValidator"));
+        try {
+            int index = 0;
+            int maxBuffered = parallelism * BUFFER_PER_THREAD;
+            for(; ; ) {
+                while(running.size() < parallelism && buffered < maxBuffered && addresses.hasNext()) {
+                    Pending pending = new Pending(index++, addresses.next());
+                    String domain = pending.address == null ? null : MailChecker.getDomain(pending.address);
+                    pending.domain = domain;
+                    if(domain == null) {
+                        pending.verdict = Verdict.WRONG_SCHEMA;
+                        MailChecker.reportCheck(null, AddressStatus.wrongSchema, 0);
+                    } else {
+                        String key = domain.toLowerCase(Locale.US);
+                        pending.verdict = checked.get(key);
+                        if(pending.verdict == null) {
+                            Check check = running.get(key);
+                            if(check == null) {
+                                check = new Check(key);
+                                running.put(key, check);
+                                executor.execute(check);
+                            }
+                            check.waiting.add(pending);
+                        }
+                    }
+                    if(inputOrder) {
+                        ordered.add(pending);
+                        buffered++;
+                    } else if(pending.verdict != null) {
+                        deliver(pending);
+                    } else {
+                        buffered++;
+                    }
+                }
+                if(inputOrder) {
+                    deliverOrdered();
+                }
+                if(running.isEmpty()) {
+                    if(!addresses.hasNext()) {
+                        break;
+                    }
+                    continue;
+                }
+                Check check = done.take();
+                running.remove(check.domain);
+                checked.put(check.domain, check.verdict);
+                for(Pending pending : check.waiting) {
+                    pending.verdict = check.verdict;
+                    pending.duration = check.duration;
+                    if(!inputOrder) {
+                        buffered--;
+                        deliver(pending);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            checked.clear();
+        }
+    }
+
+    /**
+     * Delivers the results of the head of the input which are available.
+     */
+    private void deliverOrdered() {
+        while(!ordered.isEmpty() && ordered.getFirst().verdict != null) {
+            buffered--;
+            deliver(ordered.removeFirst());
+        }
+    }
+
+    /**
+     * Informs the listener about a result.
+     *
+     * @param pending the address with its result.
+     */
+    private void deliver(Pending pending) {
+        listener.onResult(pending.index, new ValidationResult(pending.address, pending.domain, pending.verdict, pending.duration));
+    }
+
+    /**
+     * An address which waits for its result.
+     */
+    private static final class Pending {
+        final int index;
+        final String address;
+        String domain;
+        Verdict verdict;
+        long duration;
+
+        Pending(int index, String address) {
+            this.index = index;
+            this.address = address;
+        }
+    }
+
+    /**
+     * The check of a domain which is shared by all addresses with that domain.
+     */
+    private final class Check implements Runnable {
+        final String domain;
+        final List<Pending> waiting = new ArrayList<Pending>();
+        Verdict verdict;
+        long duration;
+
+        Check(String domain) {
+            this.domain = domain;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                verdict = MailChecker.checkDomain(domain, MailChecker.Cancellation.NEVER);
+            } catch(RuntimeException e) {
+                verdict = new Verdict(AddressStatus.unknown, null);
+            } finally {
+                duration = System.nanoTime() - start;
+                done.add(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import org.xbill.DNS.Lookup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The answer of a {@link DnsResolver}.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public final class DnsAnswer {
+    /**
+     * The result code of a query which the DNS server answered with an error like SERVFAIL, e.g. because the name servers of the
+     * queried domain are broken. Unlike <code>Lookup.TRY_AGAIN</code> it says nothing about the health of the DNS server.
+     */
+    public static final int SERVER_FAILURE = Lookup.TYPE_NOT_FOUND + 1;
+    private static final String[] NO_DATA = {};
+
+    private final int result;
+    private final long ttl;
+    private final String[] data;
+    private final Set<String> glue;
+
+    /**
+     * Creates a new DnsAnswer.
+     *
+     * @param result the result code like <code>Lookup.SUCCESSFUL</code>, <code>Lookup.TRY_AGAIN</code> or {@link #SERVER_FAILURE}.
+     * @param ttl    the lowest TTL of the records in seconds.
+     * @param data   the data of the records: the targets of MX records ordered by their priority, the name servers of NS records or
+     *               the addresses of A and AAAA records.
+     * @param glue   the hosts of the data which have addresses in the additional section of the response.
+     */
+    public DnsAnswer(int result, long ttl, String[] data, Set<String> glue) {
+        this.result = result;
+        this.ttl = ttl;
+        this.data = data == null ? NO_DATA : data;
+        this.glue = glue == null ? Collections.<String>emptySet() : glue;
+    }
+
+    /**
+     * Creates a successful answer.
+     *
+     * @param ttl  the lowest TTL of the records in seconds.
+     * @param data the data of the records.
+     * @return the answer.
+     */
+    public static DnsAnswer found(long ttl, String... data) {
+        return new DnsAnswer(Lookup.SUCCESSFUL, ttl, data, null);
+    }
+
+    /**
+     * Creates an answer without records.
+     *
+     * @param result the result code like <code>Lookup.HOST_NOT_FOUND</code> or <code>Lookup.TRY_AGAIN</code>.
+     * @return the answer.
+     */
+    public static DnsAnswer failed(int result) {
+        return new DnsAnswer(result, 0, null, null);
+    }
+
+    /**
+     * Creates a copy of this answer with additional glue records.
+     *
+     * @param hosts the hosts which have addresses in the additional section.
+     * @return the new answer.
+     */
+    public DnsAnswer withGlue(String... hosts) {
+        Set<String> glue = new HashSet<String>(this.glue);
+        for(String host : hosts) {
+            glue.add(host.toLowerCase(Locale.US));
+        }
+        return new DnsAnswer(result, ttl, data, glue);
+    }
+
+    /**
+     * @return the result code like <code>Lookup.SUCCESSFUL</code>.
+     */
+    public int getResult() {
+        return result;
+    }
+
+    /**
+     * @return <code>true</code> if the query was successful and returned records.
+     */
+    public boolean isSuccessful() {
+        return result == Lookup.SUCCESSFUL && data.length > 0;
+    }
+
+    /**
+     * @return <code>true</code> if the query failed temporary because of a network error or an error response of the DNS server.
+     */
+    public boolean isTemporaryFailure() {
+        return result == Lookup.TRY_AGAIN || result == SERVER_FAILURE;
+    }
+
+    /**
+     * @return the lowest TTL of the records in seconds.
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * @return the data of the records.
+     */
+    public String[] getData() {
+        return data.clone();
+    }
+
+    /**
+     * @param host the host name.
+     * @return <code>true</code> if the additional section contains addresses of the host.
+     */
+    public boolean hasGlue(String host) {
+        return glue.contains(host.toLowerCase(Locale.US));
+    }
+
+    @Override
+    public String toString() {
+        return Lookup.SUCCESSFUL == result ? Arrays.toString(data) + " ttl=" + ttl : "result=" + result;
+    }
+}
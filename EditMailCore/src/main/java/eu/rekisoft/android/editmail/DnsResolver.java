@@ -0,0 +1,29 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+/**
+ * The DNS queries the {@link MailChecker} depends on. The default implementation is a {@link ResilientDnsResolver} over one
+ * {@link DnsjavaResolver} per DNS server of the system, the {@link ScriptedDnsResolver} answers from memory for tests and benchmarks.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ * @see MailChecker#setResolver(DnsResolver)
+ */
+public interface DnsResolver {
+    /**
+     * Queries the records of the given type. Implementations must be thread safe and should not throw exceptions, errors are
+     * reported by the result code of the answer.
+     *
+     * @param name the queried name.
+     * @param type the record type like <code>Type.MX</code>, the MailChecker queries MX, A, AAAA and NS records and with parallel
+     *             lookups SOA records too.
+     * @return the answer.
+     */
+    DnsAnswer query(String name, int type);
+}
@@ -0,0 +1,141 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import org.xbill.DNS.Cache;
+import org.xbill.DNS.Credibility;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.ExtendedResolver;
+import org.xbill.DNS.Lookup;
+import org.xbill.DNS.MXRecord;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Resolver;
+import org.xbill.DNS.TextParseException;
+import org.xbill.DNS.Type;
+
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The default {@link DnsResolver} based on the DNS utils from xbill.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public class DnsjavaResolver implements DnsResolver {
+    private static final int[] ADDRESS_TYPES = {Type.A, Type.AAAA};
+    private static final Comparator<Record> PRIORITY = new Comparator<Record>() {
+        @Override
+        public int compare(Record lhs, Record rhs) {
+            return ((MXRecord) lhs).getPriority() - ((MXRecord) rhs).getPriority();
+        }
+    };
+
+    private final Resolver resolver;
+    private final Cache cache;
+
+    /**
+     * Creates a new DnsjavaResolver which uses the DNS servers of the system.
+     *
+     * @param timeout the network timeout in seconds.
+     */
+    public DnsjavaResolver(int timeout) {
+        Resolver resolver;
+        try {
+            resolver = new ExtendedResolver();
+        } catch(UnknownHostException e) {
+            resolver = Lookup.getDefaultResolver();
+        }
+        resolver.setTimeout(timeout);
+        this.resolver = resolver;
+        cache = Lookup.getDefaultCache(DClass.IN);
+    }
+
+    /**
+     * Creates a new DnsjavaResolver.
+     *
+     * @param resolver the resolver which sends the queries.
+     * @param cache    the cache of the responses.
+     */
+    public DnsjavaResolver(Resolver resolver, Cache cache) {
+        this.resolver = resolver;
+        this.cache = cache;
+    }
+
+    @Override
+    public DnsAnswer query(String name, int type) {
+        Lookup lookup;
+        try {
+            lookup = new Lookup(name, type);
+        } catch(TextParseException e) {
+            return DnsAnswer.failed(Lookup.UNRECOVERABLE);
+        }
+        lookup.setResolver(resolver);
+        lookup.setCache(cache);
+        Record[] records = lookup.run();
+        if(lookup.getResult() == Lookup.TRY_AGAIN && isErrorResponse(lookup)) {
+            return DnsAnswer.failed(DnsAnswer.SERVER_FAILURE);
+        } else if(lookup.getResult() != Lookup.SUCCESSFUL || records == null || records.length == 0) {
+            return DnsAnswer.failed(lookup.getResult());
+        }
+        if(type == Type.MX) {
+            records = records.clone();
+            Arrays.sort(records, PRIORITY);
+        }
+        String[] data = new String[records.length];
+        long ttl = Long.MAX_VALUE;
+        Set<String> glue = new HashSet<String>();
+        for(int i = 0; i < records.length; i++) {
+            Record record = records[i];
+            ttl = Math.min(ttl, record.getTTL());
+            Name target = record.getAdditionalName();
+            if(target == null) {
+                data[i] = record.rdataToString();
+            } else {
+                data[i] = target.toString();
+                if(hasGlue(target)) {
+                    glue.add(data[i].toLowerCase(Locale.US));
+                }
+            }
+        }
+        return new DnsAnswer(Lookup.SUCCESSFUL, ttl, data, glue);
+    }
+
+    /**
+     * Checks if a failed lookup got an error response like SERVFAIL. Lookup reports those as <code>Lookup.TRY_AGAIN</code> just like
+     * timeouts and network errors, only its error string tells them apart.
+     *
+     * @param lookup the lookup which failed with <code>Lookup.TRY_AGAIN</code>.
+     * @return <code>true</code> if the DNS server answered with an error.
+     */
+    private static boolean isErrorResponse(Lookup lookup) {
+        String error = lookup.getErrorString();
+        return !"timed out".equals(error) && !"network error".equals(error);
+    }
+
+    /**
+     * Checks if the cache contains addresses of the given host. Lookup does not expose the additional section of the response, but
+     * it stores the addresses of the additional section with a low credibility in the cache.
+     *
+     * @param host the host name.
+     * @return <code>true</code> if addresses of the host are known.
+     */
+    private boolean hasGlue(Name host) {
+        for(int type : ADDRESS_TYPES) {
+            if(cache.lookupRecords(host, type, Credibility.ADDITIONAL).isSuccessful()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
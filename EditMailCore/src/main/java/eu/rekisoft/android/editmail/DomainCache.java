@@ -0,0 +1,257 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache for the results of the DNS lookups done by the {@link MailChecker}. The entries expire together with the
+ * TTL of the records they were built from, negative answers (no such domain, no MX record) are kept for a shorter time. When the
+ * cache is full the least recently used entry is evicted. The answers can be persisted with
+ * {@link MailChecker#setVerdictStore(java.io.File)}.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public final class DomainCache {
+    /**
+     * The default maximal count of entries.
+     */
+    public static final int DEFAULT_MAX_SIZE = 256;
+    /**
+     * The default time in seconds a negative answer is cached.
+     */
+    public static final long DEFAULT_NEGATIVE_TTL = 5 * 60;
+    /**
+     * The default upper limit in seconds for the TTL of positive answers.
+     */
+    public static final long DEFAULT_MAX_TTL = 24 * 60 * 60;
+
+    private final LinkedHashMap<String, Answer> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile int maxSize;
+    private volatile long negativeTtl = DEFAULT_NEGATIVE_TTL;
+    private volatile long maxTtl = DEFAULT_MAX_TTL;
+    private volatile VerdictStore store;
+
+    /**
+     * Creates a new DomainCache.
+     *
+     * @param maxSize the maximal count of entries.
+     */
+    public DomainCache(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        entries = new LinkedHashMap<String, Answer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Answer> eldest) {
+                return size() > DomainCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Looks up the cached answer of a query.
+     *
+     * @param domain the queried domain.
+     * @param type   the record type of the query like <code>Type.MX</code>.
+     * @return <code>null</code> if nothing (valid) is cached, otherwise if records were found.
+     */
+    public Boolean get(String domain, int type) {
+        VerdictStore store = this.store;
+        if(store != null) {
+            store.load();
+        }
+        String key = key(domain, type);
+        synchronized(entries) {
+            Answer entry = entries.get(key);
+            if(entry != null) {
+                if(entry.expires > System.currentTimeMillis()) {
+                    hits.incrementAndGet();
+                    return entry.found;
+                }
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Checks if a valid answer is cached without counting a hit or miss.
+     *
+     * @param domain the queried domain.
+     * @param type   the record type of the query like <code>Type.MX</code>.
+     * @return <code>true</code> if an answer is cached which is not expired.
+     */
+    boolean contains(String domain, int type) {
+        String key = key(domain, type);
+        synchronized(entries) {
+            Answer entry = entries.get(key);
+            return entry != null && entry.expires > System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Stores the answer of a query.
+     *
+     * @param domain the queried domain.
+     * @param type   the record type of the query like <code>Type.MX</code>.
+     * @param found  <code>true</code> if records were found.
+     * @param ttl    the TTL of the records in seconds, it is limited to the max TTL or the negative TTL.
+     */
+    public void put(String domain, int type, boolean found, long ttl) {
+        ttl = Math.min(ttl, found ? maxTtl : negativeTtl);
+        if(ttl <= 0) {
+            return;
+        }
+        put(key(domain, type), new Answer(found, System.currentTimeMillis() + ttl * 1000));
+    }
+
+    /**
+     * Stores an answer with the given key.
+     *
+     * @param key   the key of the entry.
+     * @param entry the answer itself.
+     */
+    void put(String key, Answer entry) {
+        synchronized(entries) {
+            entries.put(key, entry);
+        }
+        VerdictStore store = this.store;
+        if(store != null) {
+            store.add(key, entry);
+        }
+    }
+
+    /**
+     * Restores a persisted answer unless a newer answer is already cached.
+     *
+     * @param key   the key of the entry.
+     * @param entry the persisted answer.
+     */
+    void restore(String key, Answer entry) {
+        synchronized(entries) {
+            Answer known = entries.get(key);
+            if(known == null || known.expires < entry.expires) {
+                entries.put(key, entry);
+            }
+        }
+    }
+
+    /**
+     * Set the store which persists the answers, <code>null</code> disables the persistence.
+     *
+     * @param store the store.
+     */
+    void setStore(VerdictStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Removes all entries, also the persisted ones. The hit and miss counters are not reset.
+     */
+    public void clear() {
+        synchronized(entries) {
+            entries.clear();
+        }
+        VerdictStore store = this.store;
+        if(store != null) {
+            store.clear();
+        }
+    }
+
+    /**
+     * @return the count of cached entries including the expired ones which were not yet removed.
+     */
+    public int getSize() {
+        synchronized(entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Changes the maximal count of entries, the least recently used entries are removed if required.
+     *
+     * @param maxSize the new maximal count of entries.
+     */
+    public void setMaxSize(int maxSize) {
+        synchronized(entries) {
+            this.maxSize = Math.max(1, maxSize);
+            while(entries.size() > this.maxSize) {
+                entries.remove(entries.keySet().iterator().next());
+            }
+        }
+    }
+
+    /**
+     * @return the maximal count of entries.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Set the time negative answers are cached.
+     *
+     * @param seconds the time in seconds, zero disables the negative caching.
+     */
+    public void setNegativeTtl(long seconds) {
+        negativeTtl = seconds;
+    }
+
+    /**
+     * Set the upper limit for the TTL of positive answers.
+     *
+     * @param seconds the time in seconds, zero disables the caching of positive answers.
+     */
+    public void setMaxTtl(long seconds) {
+        maxTtl = seconds;
+    }
+
+    /**
+     * @return the count of lookups which were answered by this cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the count of lookups which were not answered by this cache.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Builds the key for the given query.
+     *
+     * @param domain the queried domain.
+     * @param type   the record type of the query.
+     * @return the key.
+     */
+    static String key(String domain, int type) {
+        return type + ":" + domain.toLowerCase(Locale.US);
+    }
+
+    /**
+     * A cached answer.
+     */
+    static final class Answer {
+        final boolean found;
+        final long expires;
+
+        Answer(boolean found, long expires) {
+            this.found = found;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A deletion neighborhood index over the well known domains for finding typos. If two strings have a Damerau-Levenshtein-Distance of
+ * at most {@link #MAX_DISTANCE}, both strings can be turned into the same string by deleting at most that many characters of each.
+ * So the index stores the hashes of all variants of the domains with up to two deleted characters, a lookup hashes the variants of
+ * the input and only verifies the domains with a matching hash. The hashes are packed together with the domain position into a
+ * sorted long array, so the index has no per entry objects.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+final class DomainIndex {
+    /**
+     * The maximal distance which can be looked up.
+     */
+    static final int MAX_DISTANCE = 2;
+
+    private final String[] domains;
+    private final String[] keys;
+    /**
+     * The hash of a variant in the upper and the position of its domain in the lower 32 bits, sorted.
+     */
+    private final long[] entries;
+
+    /**
+     * Builds the index for the given domains. The position in the list is used as rank if two domains have the same distance.
+     *
+     * @param domains the well known domains.
+     */
+    DomainIndex(String[] domains) {
+        this.domains = domains.clone();
+        keys = new String[domains.length];
+        long[] entries = new long[64];
+        int[] hashes = new int[64];
+        int count = 0;
+        for(int i = 0; i < domains.length; i++) {
+            if(domains[i] == null) {
+                continue;
+            }
+            keys[i] = domains[i].toLowerCase(Locale.US);
+            String key = keys[i];
+            int length = key.length();
+            int variants = 1 + length + length * (length - 1) / 2;
+            if(hashes.length < variants) {
+                hashes = new int[variants];
+            }
+            int n = 0;
+            for(int a = -1; a < length; a++) {
+                for(int b = a < 0 ? -1 : a + 1; b < length; b++) {
+                    hashes[n++] = hash(key, a, b);
+                }
+            }
+            // deleting different characters of a run like "ll" gives the same variant, it is stored just once
+            Arrays.sort(hashes, 0, n);
+            if(count + n > entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(entries.length * 2, count + n));
+            }
+            for(int j = 0; j < n; j++) {
+                if(j == 0 || hashes[j] != hashes[j - 1]) {
+                    entries[count++] = ((long) hashes[j] << 32) | i;
+                }
+            }
+        }
+        this.entries = Arrays.copyOf(entries, count);
+        Arrays.sort(this.entries);
+    }
+
+    /**
+     * Finds the closest well known domain.
+     *
+     * @param domain      the domain to check.
+     * @param maxDistance the maximal distance, at most {@link #MAX_DISTANCE}.
+     * @return the closest domain or <code>null</code> if no domain is within the distance.
+     */
+    String closest(String domain, int maxDistance) {
+        int best = search(domain.toLowerCase(Locale.US), Math.min(maxDistance, MAX_DISTANCE), null);
+        return best < 0 ? null : domains[best];
+    }
+
+    /**
+     * Finds all well known domains within the given distance.
+     *
+     * @param domain      the domain to check.
+     * @param maxDistance the maximal distance, at most {@link #MAX_DISTANCE}.
+     * @return the domains ordered by their distance.
+     */
+    List<String> find(String domain, int maxDistance) {
+        maxDistance = Math.min(maxDistance, MAX_DISTANCE);
+        List<long[]> matches = new ArrayList<long[]>();
+        search(domain.toLowerCase(Locale.US), maxDistance, matches);
+        long[] ranked = new long[matches.size()];
+        for(int i = 0; i < ranked.length; i++) {
+            ranked[i] = matches.get(i)[0];
+        }
+        Arrays.sort(ranked);
+        List<String> result = new ArrayList<String>(ranked.length);
+        for(long match : ranked) {
+            result.add(domains[(int) match]);
+        }
+        return result;
+    }
+
+    /**
+     * Looks up all variants of the input and verifies the candidates.
+     *
+     * @param key         the lower case input.
+     * @param maxDistance the maximal distance.
+     * @param matches     receives all matches as distance in the upper and position in the lower 32 bits, may be <code>null</code>.
+     * @return the position of the closest domain or <code>-1</code>.
+     */
+    private int search(String key, int maxDistance, List<long[]> matches) {
+        int best = -1;
+        int bestDistance = maxDistance + 1;
+        int length = key.length();
+        for(int a = -1; a < length; a++) {
+            for(int b = a < 0 ? -1 : a + 1; b < length; b++) {
+                if(b >= 0 && (a >= 0 ? 2 : 1) > maxDistance) {
+                    continue;
+                }
+                long hash = (long) hash(key, a, b) << 32;
+                int i = Arrays.binarySearch(entries, hash);
+                if(i < 0) {
+                    i = -i - 1;
+                }
+                for(; i < entries.length && (entries[i] & 0xffffffff00000000L) == hash; i++) {
+                    int candidate = (int) entries[i];
+                    int distance = MailChecker.damerauLevenshteinDistance(keys[candidate], key, maxDistance);
+                    if(distance > maxDistance) {
+                        continue;
+                    }
+                    if(matches != null && !contains(matches, candidate)) {
+                        matches.add(new long[]{((long) distance << 32) | candidate});
+                    }
+                    if(distance < bestDistance || distance == bestDistance && candidate < best) {
+                        best = candidate;
+                        bestDistance = distance;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Checks if a domain was already matched.
+     *
+     * @param matches   the matches.
+     * @param candidate the position of the domain.
+     * @return <code>true</code> if the domain is part of the matches.
+     */
+    private static boolean contains(List<long[]> matches, int candidate) {
+        for(long[] match : matches) {
+            if((int) match[0] == candidate) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calculates the hash of a string without the characters at the given positions, like String.hashCode() of that variant but
+     * without creating it.
+     *
+     * @param key the string.
+     * @param a   the first deleted position or <code>-1</code>.
+     * @param b   the second deleted position or <code>-1</code>.
+     * @return the hash.
+     */
+    private static int hash(String key, int a, int b) {
+        int hash = 0;
+        for(int i = 0; i < key.length(); i++) {
+            if(i != a && i != b) {
+                hash = 31 * hash + key.charAt(i);
+            }
+        }
+        return hash;
+    }
+}
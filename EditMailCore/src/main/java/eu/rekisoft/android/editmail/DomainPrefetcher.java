@@ -0,0 +1,92 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Speculative lookups for the domain which is currently typed. While the domain part grows, the best prefix matches of the recently
+ * validated and the well known domains are looked up in the background, so that the check is answered by the cache when the user
+ * stops typing. Every domain is prefetched once and the count of prefetched domains is limited by a budget. The EditMail
+ * control uses one per field, other input fields can feed theirs with every change of their text.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public final class DomainPrefetcher {
+    /**
+     * The default count of domains which may be prefetched until the field is cleared.
+     */
+    public static final int DEFAULT_BUDGET = 8;
+    /**
+     * The count of prefix matches which are prefetched per key stroke.
+     */
+    private static final int MATCHES = 2;
+    /**
+     * The minimal length of the typed domain, shorter prefixes match too many domains.
+     */
+    private static final int MIN_PREFIX = 2;
+
+    private final Set<String> prefetched = new HashSet<String>();
+    private volatile int budget;
+    private int remaining;
+
+    /**
+     * Creates a new DomainPrefetcher.
+     *
+     * @param budget the count of domains which may be prefetched until the field is cleared.
+     */
+    public DomainPrefetcher(int budget) {
+        this.budget = budget;
+        remaining = budget;
+    }
+
+    /**
+     * Prefetches the best matches for the typed domain.
+     *
+     * @param text the current text of the field.
+     */
+    public synchronized void onInput(String text) {
+        int at = text.lastIndexOf('@');
+        if(at < 0) {
+            if(text.trim().length() == 0) {
+                // a new address is typed
+                prefetched.clear();
+                remaining = budget;
+            }
+            return;
+        }
+        String prefix = text.substring(at + 1).trim().toLowerCase(Locale.US);
+        if(remaining <= 0 || prefix.length() < MIN_PREFIX || !AddressSyntax.isAscii(prefix)) {
+            return;
+        }
+        for(String domain : MailChecker.findPrefixMatches(prefix, MATCHES)) {
+            if(remaining > 0 && prefetched.add(domain) && MailChecker.prefetch(domain)) {
+                remaining--;
+            }
+        }
+    }
+
+    /**
+     * Changes the budget, it is applied when the field is cleared the next time.
+     *
+     * @param budget the count of domains which may be prefetched until the field is cleared.
+     */
+    public void setBudget(int budget) {
+        this.budget = Math.max(0, budget);
+    }
+
+    /**
+     * @return the count of domains which may be prefetched until the field is cleared.
+     */
+    public int getBudget() {
+        return budget;
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A prefix trie of the well known domains for the auto completion. The nodes are stored in flat arrays and every node knows the
+ * best domain below it, so the best completion of a prefix costs one step per character no matter how many domains there are.
+ * Domains are ranked by the count of their successful checks and then by their position in the domain list.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+final class DomainTrie {
+    private final String[] domains;
+    private final long[] hits;
+    private final char[] label;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    /**
+     * The id of the domain which ends at the node or <code>-1</code>.
+     */
+    private final int[] terminal;
+    /**
+     * The id of the best domain below the node including the node itself.
+     */
+    private final int[] best;
+
+    /**
+     * Creates a new DomainTrie.
+     *
+     * @param list the domains, the earlier ones are preferred.
+     */
+    DomainTrie(String[] list) {
+        Map<String, Integer> ids = new HashMap<String, Integer>(list.length * 2);
+        List<String> unique = new ArrayList<String>(list.length);
+        int chars = 1;
+        for(String domain : list) {
+            String lower = domain.toLowerCase(Locale.US);
+            if(!ids.containsKey(lower)) {
+                ids.put(lower, unique.size());
+                unique.add(lower);
+                chars += lower.length();
+            }
+        }
+        domains = unique.toArray(new String[unique.size()]);
+        hits = new long[domains.length];
+        label = new char[chars];
+        firstChild = new int[chars];
+        nextSibling = new int[chars];
+        terminal = new int[chars];
+        best = new int[chars];
+        terminal[0] = -1;
+        int nodes = 1;
+        for(int id = domains.length - 1; id >= 0; id--) {
+            // inserted from the last to the first domain, so that the earlier domains overwrite the best ids
+            String domain = domains[id];
+            int node = 0;
+            best[0] = id;
+            for(int i = 0; i < domain.length(); i++) {
+                char c = domain.charAt(i);
+                int child = firstChild[node] - 1;
+                while(child >= 0 && label[child] != c) {
+                    child = nextSibling[child] - 1;
+                }
+                if(child < 0) {
+                    child = nodes++;
+                    label[child] = c;
+                    terminal[child] = -1;
+                    nextSibling[child] = firstChild[node];
+                    firstChild[node] = child + 1;
+                }
+                node = child;
+                best[node] = id;
+            }
+            terminal[node] = id;
+        }
+    }
+
+    /**
+     * Creates a new DomainTrie which keeps the successful checks counted by the previous trie.
+     *
+     * @param list     the domains, the earlier ones are preferred.
+     * @param previous the trie of the previous domain list or <code>null</code>.
+     */
+    DomainTrie(String[] list, DomainTrie previous) {
+        this(list);
+        if(previous != null) {
+            previous.copyHits(this);
+        }
+    }
+
+    /**
+     * Finds the best domain which starts with the given prefix.
+     *
+     * @param prefix the lower case beginning of a domain.
+     * @return the best domain or <code>null</code> if no domain starts with the prefix.
+     */
+    synchronized String complete(String prefix) {
+        int node = find(prefix);
+        return node < 0 ? null : domains[best[node]];
+    }
+
+    /**
+     * Finds the best domains which start with the given prefix.
+     *
+     * @param prefix the lower case beginning of a domain.
+     * @param max    the maximal count of domains.
+     * @return the domains, the best one first.
+     */
+    synchronized List<String> complete(String prefix, int max) {
+        List<String> matches = new ArrayList<String>(max);
+        int node = find(prefix);
+        if(node < 0 || max <= 0) {
+            return matches;
+        }
+        int[] top = new int[max];
+        int count = collect(node, top, 0);
+        for(int i = 0; i < count; i++) {
+            matches.add(domains[top[i]]);
+        }
+        return matches;
+    }
+
+    /**
+     * Counts a successful check of a domain, so that it gets preferred over domains which are checked less often.
+     *
+     * @param domain the lower case domain, unknown domains are ignored.
+     */
+    synchronized void hit(String domain) {
+        hit(domain, 1);
+    }
+
+    /**
+     * Counts the successful checks of this trie in another trie, the domains which are not part of the other trie are skipped.
+     *
+     * @param target the other trie.
+     */
+    private synchronized void copyHits(DomainTrie target) {
+        for(int id = 0; id < domains.length; id++) {
+            if(hits[id] > 0) {
+                target.hit(domains[id], hits[id]);
+            }
+        }
+    }
+
+    /**
+     * Implementation of {@link #hit(String)}.
+     *
+     * @param domain the lower case domain, unknown domains are ignored.
+     * @param count  the count of successful checks.
+     */
+    private synchronized void hit(String domain, long count) {
+        int node = find(domain);
+        if(node < 0 || terminal[node] < 0) {
+            return;
+        }
+        int id = terminal[node];
+        hits[id] += count;
+        node = 0;
+        for(int i = 0; ; i++) {
+            if(isBetter(id, best[node])) {
+                best[node] = id;
+            }
+            if(i == domain.length()) {
+                break;
+            }
+            node = child(node, domain.charAt(i));
+        }
+    }
+
+    /**
+     * @return the node of the prefix or <code>-1</code> if there is none.
+     */
+    private int find(String prefix) {
+        if(domains.length == 0) {
+            return -1;
+        }
+        int node = 0;
+        for(int i = 0; i < prefix.length() && node >= 0; i++) {
+            node = child(node, prefix.charAt(i));
+        }
+        return node;
+    }
+
+    private int child(int node, char c) {
+        int child = firstChild[node] - 1;
+        while(child >= 0 && label[child] != c) {
+            child = nextSibling[child] - 1;
+        }
+        return child;
+    }
+
+    /**
+     * Collects the best domains below a node, sorted insertion into a small array.
+     *
+     * @return the new count of collected domains.
+     */
+    private int collect(int node, int[] top, int count) {
+        if(count == top.length && !isBetter(best[node], top[count - 1])) {
+            // nothing below this node can make it into the top
+            return count;
+        }
+        int id = terminal[node];
+        if(id >= 0 && (count < top.length || isBetter(id, top[count - 1]))) {
+            int i = Math.min(count, top.length - 1);
+            while(i > 0 && isBetter(id, top[i - 1])) {
+                top[i] = top[i - 1];
+                i--;
+            }
+            top[i] = id;
+            count = Math.min(count + 1, top.length);
+        }
+        for(int child = firstChild[node] - 1; child >= 0; child = nextSibling[child] - 1) {
+            count = collect(child, top, count);
+        }
+        return count;
+    }
+
+    private boolean isBetter(int id, int other) {
+        return hits[id] > hits[other] || hits[id] == hits[other] && id < other;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import java.util.Arrays;
+
+/**
+ * Bundled tables for checking domains without network access: the top level domains which exist and the big mail providers which
+ * are always valid. The tables are sorted arrays, a lookup is a binary search without any allocation.
+ * <p/>
+ * The country code top level domains are complete, so unknown two letter top level domains cannot exist. The list of the generic
+ * top level domains only contains the common ones, because hundreds of new ones are added every year.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+final class KnownDomains {
+    /**
+     * All country code top level domains.
+     */
+    private static final String COUNTRY_CODES = "ac ad ae af ag ai al am ao aq ar as at au aw ax az ba bb bd be bf bg bh bi bj bl bm bn "
+            + "bo bq br bs bt bv bw by bz ca cc cd cf cg ch ci ck cl cm cn co cr cu cv cw cx cy cz de dj dk dm do dz ec ee eg eh er es "
+            + "et eu fi fj fk fm fo fr ga gb gd ge gf gg gh gi gl gm gn gp gq gr gs gt gu gw gy hk hm hn hr ht hu id ie il im in io iq "
+            + "ir is it je jm jo jp ke kg kh ki km kn kp kr kw ky kz la lb lc li lk lr ls lt lu lv ly ma mc md me mf mg mh mk ml mm mn "
+            + "mo mp mq mr ms mt mu mv mw mx my mz na nc ne nf ng ni nl no np nr nu nz om pa pe pf pg ph pk pl pm pn pr ps pt pw py qa "
+            + "re ro rs ru rw sa sb sc sd se sg sh si sj sk sl sm sn so sr ss st su sv sx sy sz tc td tf tg th tj tk tl tm tn to tr tt "
+            + "tv tw tz ua ug uk us uy uz va vc ve vg vi vn vu wf ws ye yt za zm zw";
+    /**
+     * The common generic top level domains.
+     */
+    private static final String GENERIC = "academy aero africa agency alsace amsterdam app arpa art asia audio auto band bank bar "
+            + "bayern beer berlin best bid bike bio biz black blog blue boston build builders business buzz bzh cab cafe cam camera "
+            + "capital car care cars cat center ceo chat church city click clinic cloud club coach codes coffee college com community "
+            + "company computer consulting construction contractors cool coop corsica cymru dance dating deals delivery dental design "
+            + "dev digital direct directory discount dog domains earth eco edu education email energy engineering enterprises eus "
+            + "events exchange expert express family fan fans farm fashion film finance financial fish fit fitness florist foundation "
+            + "frl fun fund furniture gal gallery game games garden gent gifts global gmbh gold golf gov graphics green group guide "
+            + "guru hamburg haus health help holdings holiday home host hosting house how icu inc info ink institute insurance int "
+            + "international investments irish ist istanbul jobs kaufen kim kitchen koeln land law lawyer legal life lighting limited "
+            + "link live llc lol london love ltd luxury management market marketing media menu miami mil mobi moda moe mom money "
+            + "movie museum music name net network new news ngo ninja nrw nyc one ong onl online ooo org ovh page paris partners "
+            + "parts photo photography photos pics pictures pink pizza place plus post press pro productions properties pub quebec "
+            + "radio red rentals repair report restaurant rocks ruhr run saarland sale salon scot school services sexy shoes shop "
+            + "shopping show site ski soccer social software solar solutions space store studio style sucks support surf swiss "
+            + "systems taxi team tech technology tel tips tirol today tokyo tools top tours town toys trade training travel tube "
+            + "university uno vegas ventures vet video vip vision vlaanderen vodka vote wales watch website wedding wien wiki win "
+            + "wine work works world wtf xn--80asehdb xn--90ais xn--j1amh xn--p1ai xxx xyz yoga zone";
+    /**
+     * The big mail providers whose domains are always valid.
+     */
+    private static final String PROVIDERS = "126.com 163.com aim.com aol.com arcor.de att.net bluewin.ch btinternet.com comcast.net "
+            + "fastmail.com free.fr freenet.de gmail.com gmx.at gmx.ch gmx.com gmx.de gmx.net googlemail.com hotmail.co.uk "
+            + "hotmail.com hotmail.de hotmail.fr hushmail.com icloud.com interia.pl laposte.net libero.it live.com live.de mac.com "
+            + "mail.com mail.ru mailbox.org me.com msn.com naver.com o2.pl orange.fr outlook.com outlook.de posteo.de proton.me "
+            + "protonmail.com qq.com rocketmail.com sbcglobal.net seznam.cz t-online.de tutanota.com verizon.net virgilio.it "
+            + "wanadoo.fr web.de wp.pl yahoo.co.uk yahoo.com yahoo.de yahoo.fr yandex.ru ymail.com zoho.com";
+
+    private static final String[] tlds = sorted(COUNTRY_CODES + " " + GENERIC);
+    private static final String[] providers = sorted(PROVIDERS);
+
+    private KnownDomains() {
+    }
+
+    /**
+     * Checks if a domain belongs to one of the big mail providers.
+     *
+     * @param domain the lower case domain.
+     * @return <code>true</code> if the domain is known to receive mails.
+     */
+    static boolean isProvider(String domain) {
+        return Arrays.binarySearch(providers, domain) >= 0;
+    }
+
+    /**
+     * Checks if the top level domain of a domain is in the bundled table.
+     *
+     * @param tld the lower case top level domain.
+     * @return <code>true</code> if the top level domain is known.
+     */
+    static boolean isKnownTld(String tld) {
+        return Arrays.binarySearch(tlds, tld) >= 0;
+    }
+
+    /**
+     * Checks if a top level domain cannot exist without asking the DNS. That is the case for empty and unknown two letter top level
+     * domains and for top level domains with characters which are not allowed.
+     *
+     * @param tld the lower case top level domain.
+     * @return <code>true</code> if the top level domain cannot exist.
+     */
+    static boolean isImpossibleTld(String tld) {
+        if(tld.length() < 2 || tld.length() == 2 && !isKnownTld(tld)) {
+            return true;
+        }
+        if(tld.startsWith("xn--")) {
+            return false;
+        }
+        for(int i = 0; i < tld.length(); i++) {
+            char c = tld.charAt(i);
+            if(c < 'a' || c > 'z') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits and sorts a table.
+     *
+     * @param table the space separated entries.
+     * @return the sorted entries.
+     */
+    private static String[] sorted(String table) {
+        String[] entries = table.split(" ");
+        Arrays.sort(entries);
+        return entries;
+    }
+}
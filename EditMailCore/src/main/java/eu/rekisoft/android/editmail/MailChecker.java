@@ -0,0 +1,1306 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+
+import org.xbill.DNS.Lookup;
+import org.xbill.DNS.Type;
+
+import java.io.File;
+import java.net.IDN;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tool set for verifying email addressed based on the DNS utils from xbill. It runs on Android as well as on any JVM and all
+ * methods are thread safe.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public final class MailChecker {
+    /**
+     * The status of the mail address verification.
+     *
+     * @author René Kilczan
+     */
+    public static enum AddressStatus {
+        /**
+         * The address seems to be fine
+         */
+        valid,
+        /**
+         * The address has some schema errors like a missing at sign
+         */
+        wrongSchema,
+        /**
+         * The domain is currently not registered
+         */
+        notRegistered,
+        /**
+         * The domain has no MX record (so the domain cannot receive mails)
+         */
+        noMxRecord,
+        /**
+         * A typographic error was detected
+         */
+        typoDetected,
+        /**
+         * The status of the address is unknown
+         */
+        unknown,
+        /**
+         * The mail address check is pending
+         */
+        pending;
+
+        private String mail;
+
+        /**
+         * @return the suggested mail address.
+         * @deprecated the value is shared by all validations, use {@link ValidationResult#getSuggestion()} instead.
+         */
+        @Deprecated
+        public String getMailAddress() {
+            return mail;
+        }
+
+        /**
+         * Set the email address in case of a detected typo.
+         *
+         * @param mail The mail address which is guessed.
+         * @return this.
+         */
+        protected AddressStatus setMailAddress(String mail) {
+            this.mail = mail;
+            return this;
+        }
+
+        /**
+         * Only valid and typoDetected are not wrong, so pending and unknown count as wrong just like the failures. A detected typo
+         * is not wrong, the address comes with a suggestion instead.
+         *
+         * @return <code>true</code> unless the status is valid or typoDetected.
+         */
+        public boolean wrong() {
+            return this != valid && this != typoDetected;
+        }
+    }
+
+    /**
+     * The stages of a check which are reported to the {@link MetricsListener}.
+     *
+     * @author René Kilczan
+     */
+    public static enum Stage {
+        /**
+         * The lookup of the MX records
+         */
+        mx,
+        /**
+         * The lookup of the A or AAAA records of a mail server
+         */
+        address,
+        /**
+         * The search for typos in the list of well known domains
+         */
+        typo,
+        /**
+         * The lookup of the NS records of a domain or top level domain
+         */
+        ns,
+        /**
+         * The lookup of the SOA record of a domain, only with parallel lookups
+         */
+        soa
+    }
+
+    /**
+     * The reused matrix of the Damerau-Levenshtein-Distance calculation, declared before the domain index which needs it.
+     */
+    private static final ThreadLocal<int[]> distanceMatrix = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[64 * 64];
+        }
+    };
+
+    /**
+     * A small list of well known email addresses.
+     */
+    @SuppressWarnings("SpellCheckingInspection")
+    private static volatile String[] domains = {"web.de", "gmx.de", "gmx.com", "gmx.net", "freenet.net", "hotmail.com", "gmail.com",
+            "googlemail.com", "live.de", "live.com", "hotmail.de", "aol.com", "t-online.de", "hushmail.com", "uni.de", "yahoo.com",
+            "yahoo.de"};
+
+    /**
+     * The index of the well known domains for the typo detection.
+     */
+    private static volatile DomainIndex index = new DomainIndex(domains);
+
+    /**
+     * The prefix trie of the well known domains for the auto completion.
+     */
+    private static volatile DomainTrie trie = new DomainTrie(domains);
+
+    /**
+     * The known typos and their corrections.
+     */
+    private static final TypoMemo typos = new TypoMemo(TypoMemo.DEFAULT_MAX_SIZE);
+
+    /**
+     * The cache for the DNS lookups.
+     */
+    private static final DomainCache cache = new DomainCache(DomainCache.DEFAULT_MAX_SIZE);
+
+    /**
+     * The record types which are used to resolve the MX targets.
+     */
+    private static final int[] ADDRESS_TYPES = {Type.A, Type.AAAA};
+
+    /**
+     * The default count of lookups which run at the same time.
+     */
+    private static final int MAX_PARALLEL_LOOKUPS = 4;
+
+    /**
+     * The count of MX targets which are resolved at the same time per lookup which runs at the same time.
+     */
+    private static final int TARGETS_PER_LOOKUP = 2;
+
+    /**
+     * If <code>java.net.IDN</code> exists, on Android it was added with API level 9.
+     */
+    private static final boolean IDN_SUPPORTED = isIdnSupported();
+
+    /**
+     * The interval in milliseconds in which a waiting check looks if it was canceled.
+     */
+    static final long CANCEL_POLL_INTERVAL = 50;
+
+    /**
+     * The count of recently validated domains which are remembered for the prefetching.
+     */
+    private static final int MAX_RECENT_DOMAINS = 32;
+
+    /**
+     * The executor for the lookups. If all threads are busy the lookup runs in the calling thread.
+     */
+    private static final ThreadPoolExecutor lookupExecutor = new ThreadPoolExecutor(0, MAX_PARALLEL_LOOKUPS, 30, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(), daemonThreads("MailChecker"), new ThreadPoolExecutor.CallerRunsPolicy());
+
+    /**
+     * The executor for resolving the MX targets. It is separate from the lookups and never runs a target in the calling thread,
+     * otherwise the targets of a busy checker would be resolved one after another again. If all threads are busy the targets wait
+     * in the queue.
+     */
+    private static final ThreadPoolExecutor targetExecutor = createTargetExecutor();
+
+    /**
+     * The default executor of {@link #validateAsync(String, Executor, long, ResultListener)}.
+     */
+    private static final ExecutorService asyncExecutor = Executors.newCachedThreadPool(daemonThreads("MailChecker-async"));
+
+    /**
+     * The recently validated domains, the most recent one is the last one.
+     */
+    private static final LinkedHashMap<String, Boolean> recentDomains = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_RECENT_DOMAINS;
+        }
+    };
+
+    /**
+     * The lookups which are currently running, keyed like the cache entries.
+     */
+    private static final SingleFlight<Boolean> inFlight = new SingleFlight<Boolean>(lookupExecutor);
+
+    /**
+     * The resolver for the DNS queries, by default one per DNS server of the system with a network timeout of one second each.
+     */
+    private static volatile DnsResolver resolver = ResilientDnsResolver.forSystemServers(1);
+
+    /**
+     * If the bundled tables of the top level domains and mail providers are used.
+     */
+    private static volatile boolean offlineChecks = true;
+
+    /**
+     * If the existence of a domain is checked together with its MX records.
+     */
+    private static volatile boolean parallelLookups;
+
+    /**
+     * If the existence of a domain is checked with its SOA record too, only used with parallel lookups.
+     */
+    private static volatile boolean soaLookups;
+
+    /**
+     * The listener for the timings and outcomes of the checks.
+     */
+    private static volatile MetricsListener metrics;
+
+    /**
+     * Let you set your own list of domains which you want to use for auto correction. Building the index of a long list takes some
+     * time, so nothing is done if the list did not change.
+     *
+     * @param list Your list of well known domains.
+     */
+    public static synchronized void setDomainList(String[] list) {
+        if(list != null && !Arrays.equals(list, domains)) {
+            index = new DomainIndex(list);
+            // the counted checks are kept, so that the ranking of the completions survives a new list
+            trie = new DomainTrie(list, trie);
+            domains = list.clone();
+        }
+    }
+
+    /**
+     * Enables or disables the checks with the bundled tables. If enabled, which is the default, the domains of the big mail
+     * providers are valid without any DNS lookup and domains with a top level domain which does not exist are checked for typos
+     * and rejected without looking up their MX records.
+     *
+     * @param enabled <code>false</code> to check every domain with DNS lookups.
+     */
+    public static void setOfflineChecks(boolean enabled) {
+        offlineChecks = enabled;
+    }
+
+    /**
+     * Changes the count of lookups which run at the same time in the background, if more are needed they run in the calling
+     * thread. The default of 4 fits an app, servers which validate many addresses at once should use a higher limit. The MX targets
+     * are resolved by a separate pool with two threads per lookup.
+     *
+     * @param count the maximal count of background lookups.
+     */
+    public static void setMaxParallelLookups(int count) {
+        if(count > 0) {
+            lookupExecutor.setMaximumPoolSize(count);
+            int targets = count * TARGETS_PER_LOOKUP;
+            synchronized(targetExecutor) {
+                // the core size must never exceed the maximal size
+                if(targets > targetExecutor.getMaximumPoolSize()) {
+                    targetExecutor.setMaximumPoolSize(targets);
+                    targetExecutor.setCorePoolSize(targets);
+                } else {
+                    targetExecutor.setCorePoolSize(targets);
+                    targetExecutor.setMaximumPoolSize(targets);
+                }
+            }
+        }
+    }
+
+    /**
+     * Enables or disables the parallel lookups. By default the NS records of a domain are looked up after its MX lookup failed, so
+     * the slow negative verdicts cost two or more round trips in a row. If enabled the MX and the NS lookups are started together
+     * and the typo search runs while they are on their way. This costs an additional NS lookup for every valid domain which is not
+     * cached yet.
+     *
+     * @param enabled <code>true</code> to look up the MX and NS records at once.
+     * @see #setSoaLookups(boolean)
+     */
+    public static void setParallelLookups(boolean enabled) {
+        parallelLookups = enabled;
+    }
+
+    /**
+     * Enables or disables the SOA lookups of the parallel lookups. The SOA lookup recognizes domains which exist without own name
+     * servers, like most sub domains, so that they are reported as {@link AddressStatus#noMxRecord} instead of
+     * {@link AddressStatus#notRegistered}. The first answer which proves the existence wins.
+     *
+     * @param enabled <code>true</code> to look up the SOA record together with the NS records.
+     * @see #setParallelLookups(boolean)
+     */
+    public static void setSoaLookups(boolean enabled) {
+        soaLookups = enabled;
+    }
+
+    /**
+     * Set a listener which is informed about the timings and outcomes of all checks, e.g. a {@link ValidationMetrics}. Without a
+     * listener the checks are not measured at all.
+     *
+     * @param listener the listener or <code>null</code> to disable the measuring.
+     */
+    public static void setMetricsListener(MetricsListener listener) {
+        metrics = listener;
+    }
+
+    /**
+     * Let you replace the resolver for the DNS queries, e.g. with a {@link ScriptedDnsResolver} for tests. The cache is cleared
+     * together with the persisted verdicts.
+     *
+     * @param dnsResolver the new resolver.
+     */
+    public static void setResolver(DnsResolver dnsResolver) {
+        if(dnsResolver != null) {
+            resolver = dnsResolver;
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return the resolver for the DNS queries.
+     */
+    public static DnsResolver getResolver() {
+        return resolver;
+    }
+
+    /**
+     * @return the memo of the known typos, e.g. for exporting the learned corrections.
+     */
+    public static TypoMemo getTypoMemo() {
+        return typos;
+    }
+
+    /**
+     * Tells the MailChecker that the user accepted a suggested correction, so that the same typo gets corrected right away the next
+     * time.
+     *
+     * @param mail       the mail address with the typo.
+     * @param suggestion the accepted mail address.
+     */
+    public static void acceptSuggestion(String mail, String suggestion) {
+        String typo = mail == null ? null : getDomain(mail.trim());
+        String correction = suggestion == null ? null : getDomain(suggestion.trim());
+        if(typo != null && correction != null) {
+            typos.learn(typo, correction);
+        }
+    }
+
+    /**
+     * Persists the verdicts of the DNS lookups in the given file, so that the first checks after a restart of the app can be
+     * answered without network access as long as the verdicts are not expired. The file is read with the first check and written
+     * in the background, e.g. use a file in <code>Context.getCacheDir()</code>.
+     *
+     * @param file the file for the verdicts or <code>null</code> to disable the persistence.
+     */
+    public static void setVerdictStore(File file) {
+        cache.setStore(file == null ? null : new VerdictStore(file, cache));
+    }
+
+    /**
+     * @return the cache of the DNS lookups, e.g. for changing its size or reading the hit and miss counters.
+     */
+    public static DomainCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Checks if a mail address is correct and tries to correct it if possible.
+     *
+     * @param mail the input mail address.
+     * @return the status of the validation with a copy of the mail address on success.
+     * @deprecated the suggested mail address is stored in the shared AddressStatus, so concurrent validations overwrite each
+     * other. Use {@link #check(String)} instead.
+     */
+    @Deprecated
+    public static MailChecker.AddressStatus validate(String mail) {
+        ValidationResult result = check(mail);
+        switch(result.getStatus()) {
+            case valid:
+                return AddressStatus.valid.setMailAddress(mail);
+            case typoDetected:
+                return AddressStatus.typoDetected.setMailAddress(result.getSuggestion());
+            default:
+                return result.getStatus();
+        }
+    }
+
+    /**
+     * Checks if a mail address is correct and tries to correct it if possible. This method is thread safe.
+     *
+     * @param mail the input mail address.
+     * @return the result of the validation.
+     */
+    public static ValidationResult check(String mail) {
+        return check(mail, Cancellation.NEVER);
+    }
+
+    /**
+     * Checks if a mail address is correct and tries to correct it if possible. The check gives up between its lookups as soon as
+     * the cancellation is signaled, the status is then unknown.
+     *
+     * @param mail   the input mail address.
+     * @param cancel the signal for giving up.
+     * @return the result of the validation.
+     */
+    static ValidationResult check(String mail, Cancellation cancel) {
+        long start = System.nanoTime();
+        String domain = getDomain(mail);
+        if(domain == null) {
+            // System.err.println(mail + " is no valid email address");
+            long duration = System.nanoTime() - start;
+            reportCheck(null, AddressStatus.wrongSchema, duration);
+            return new ValidationResult(mail, null, Verdict.WRONG_SCHEMA, duration);
+        }
+        Verdict verdict = checkDomain(domain, cancel);
+        return new ValidationResult(mail, domain, verdict, System.nanoTime() - start);
+    }
+
+    /**
+     * Checks a mail address in the background.
+     *
+     * @param mail     the input mail address.
+     * @param executor the executor which runs the check or <code>null</code> for a shared pool of the MailChecker.
+     * @param timeout  the time in milliseconds after which the check gives up with the status unknown, zero for no limit.
+     * @param listener the listener which receives the result on the thread of the executor, it is not invoked if the check was
+     *                 canceled. May be <code>null</code>.
+     * @return the future of the result, canceling it stops the check between its lookups.
+     */
+    public static Future<ValidationResult> validateAsync(String mail, Executor executor, long timeout, ResultListener listener) {
+        AsyncCheck check = new AsyncCheck(mail, timeout, listener);
+        (executor == null ? asyncExecutor : executor).execute(check);
+        return check;
+    }
+
+    /**
+     * Checks many mail addresses at once. The addresses are grouped by their domain so that each distinct domain is just checked
+     * once, up to <code>parallelism</code> domains are checked at the same time. The listener is invoked on the calling thread.
+     *
+     * @param addresses   the input mail addresses.
+     * @param parallelism the maximal count of domains which are checked at the same time.
+     * @param inputOrder  <code>true</code> if the results should be delivered in the order of the input, otherwise the results
+     *                    are delivered as soon as they are available.
+     * @param listener    the listener which receives the results.
+     * @throws InterruptedException if the calling thread was interrupted while waiting for results.
+     */
+    public static void validateAll(Iterable<String> addresses, int parallelism, boolean inputOrder, BulkListener listener)
+            throws InterruptedException {
+        validateAll(addresses.iterator(), parallelism, inputOrder, listener);
+    }
+
+    /**
+     * Checks many mail addresses at once. The addresses are read lazily from the iterator and grouped by their domain so that each
+     * distinct domain is just checked once, up to <code>parallelism</code> domains are checked at the same time. The listener is
+     * invoked on the calling thread.
+     *
+     * @param addresses   the input mail addresses.
+     * @param parallelism the maximal count of domains which are checked at the same time.
+     * @param inputOrder  <code>true</code> if the results should be delivered in the order of the input, otherwise the results
+     *                    are delivered as soon as they are available.
+     * @param listener    the listener which receives the results.
+     * @throws InterruptedException if the calling thread was interrupted while waiting for results.
+     */
+    public static void validateAll(Iterator<String> addresses, int parallelism, boolean inputOrder, BulkListener listener)
+            throws InterruptedException {
+        new BulkValidator(addresses, parallelism, inputOrder, listener).run();
+    }
+
+    /**
+     * Checks the domain of a mail address and looks for typos if the domain cannot receive mails.
+     *
+     * @param domain the domain in its ASCII form.
+     * @param cancel the signal for giving up.
+     * @return the verdict for the domain.
+     */
+    static Verdict checkDomain(String domain, Cancellation cancel) {
+        MetricsListener listener = metrics;
+        long start = listener == null ? 0 : System.nanoTime();
+        Verdict verdict = lookUpDomain(domain, cancel);
+        if(verdict.status == AddressStatus.valid) {
+            String lower = domain.toLowerCase(Locale.US);
+            synchronized(recentDomains) {
+                recentDomains.put(lower, Boolean.TRUE);
+            }
+            trie.hit(lower);
+        }
+        if(listener != null) {
+            listener.onCheck(domain, verdict.status, System.nanoTime() - start);
+        }
+        return verdict;
+    }
+
+    /**
+     * Reports a check which did not need {@link #checkDomain(String, Cancellation)}, like a malformed mail address.
+     *
+     * @param domain   the domain in its ASCII form or <code>null</code> if the mail address is malformed.
+     * @param status   the final status.
+     * @param duration the duration of the check in nanoseconds.
+     */
+    static void reportCheck(String domain, AddressStatus status, long duration) {
+        MetricsListener listener = metrics;
+        if(listener != null) {
+            listener.onCheck(domain, status, duration);
+        }
+    }
+
+    /**
+     * Finds the best completion of a partially typed domain: the most recently validated domain which starts with the prefix or
+     * otherwise the best well known domain. Input fields can offer it as inline completion while the domain is typed.
+     *
+     * @param prefix the lower case beginning of a domain.
+     * @return the completed domain or <code>null</code> if no domain starts with the prefix.
+     */
+    public static String completeDomain(String prefix) {
+        synchronized(recentDomains) {
+            String completion = null;
+            for(String domain : recentDomains.keySet()) {
+                if(domain.startsWith(prefix)) {
+                    // the iteration starts with the eldest domain
+                    completion = domain;
+                }
+            }
+            if(completion != null) {
+                return completion;
+            }
+        }
+        return trie.complete(prefix);
+    }
+
+    /**
+     * Finds the domains which start with the given prefix, the recently validated domains first and then the best well known
+     * domains.
+     *
+     * @param prefix the lower case beginning of a domain.
+     * @param max    the maximal count of domains.
+     * @return the matching domains.
+     */
+    static List<String> findPrefixMatches(String prefix, int max) {
+        List<String> matches = new ArrayList<String>(max);
+        String[] recent;
+        synchronized(recentDomains) {
+            recent = recentDomains.keySet().toArray(new String[recentDomains.size()]);
+        }
+        for(int i = recent.length - 1; i >= 0 && matches.size() < max; i--) {
+            if(recent[i].startsWith(prefix)) {
+                matches.add(recent[i]);
+            }
+        }
+        if(matches.size() < max) {
+            for(String domain : trie.complete(prefix, max)) {
+                if(matches.size() < max && !matches.contains(domain)) {
+                    matches.add(domain);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Looks up the MX records of a domain in the background, so that a later check is answered by the cache. Nothing is done if the
+     * domain is already cached or does not need a lookup at all.
+     *
+     * @param domain the lower case domain in its ASCII form.
+     * @return <code>true</code> if a lookup was started.
+     */
+    static boolean prefetch(final String domain) {
+        if(offlineChecks && KnownDomains.isProvider(domain) || cache.contains(domain, Type.MX)) {
+            return false;
+        }
+        asyncExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    validateMxServer(domain, Cancellation.NEVER);
+                } catch(IllegalStateException e) {
+                    // the check will try again
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Implementation of {@link #checkDomain(String, Cancellation)}.
+     *
+     * @param domain the domain in its ASCII form.
+     * @param cancel the signal for giving up.
+     * @return the verdict for the domain.
+     */
+    private static Verdict lookUpDomain(String domain, Cancellation cancel) {
+        String correction = typos.get(domain);
+        if(correction != null) {
+            reportCached(Stage.typo, domain, true);
+            return new Verdict(AddressStatus.typoDetected, correction);
+        }
+        try {
+            if(offlineChecks) {
+                String lower = domain.toLowerCase(Locale.US);
+                if(KnownDomains.isProvider(lower)) {
+                    return new Verdict(AddressStatus.valid, null);
+                }
+                String tld = lower.substring(lower.lastIndexOf('.') + 1);
+                if(!KnownDomains.isKnownTld(tld)) {
+                    // a rare top level domain can still exist, only a missing one proves a typo
+                    if(KnownDomains.isImpossibleTld(tld) || !doesDomainExists(tld + ".", cancel)) {
+                        String typo = findTypo(domain);
+                        if(typo != null) {
+                            return new Verdict(AddressStatus.typoDetected, typo);
+                        }
+                        return new Verdict(AddressStatus.notRegistered, null);
+                    }
+                    cancel.check();
+                }
+            }
+            if(parallelLookups) {
+                return lookUpParallel(domain, cancel);
+            }
+            if(validateMxServer(domain, cancel)) {
+                // System.out.println(domain + " is ok");
+                return new Verdict(AddressStatus.valid, null);
+            } else {
+                cancel.check();
+                String d = findTypo(domain);
+                if(d != null) {
+                    // System.out.println(domain + " did you mean " + d + "?");
+                    return new Verdict(AddressStatus.typoDetected, d);
+                }
+                cancel.check();
+                if(doesDomainExists(domain, cancel)) {
+                    // System.err.println(domain + " has no mail servers");
+                    return new Verdict(AddressStatus.noMxRecord, null);
+                } else {
+                    // System.err.println("Domain \"" + domain + "\" does not exists");
+                    return new Verdict(AddressStatus.notRegistered, null);
+                }
+            }
+        } catch(IllegalStateException e) {
+            return new Verdict(AddressStatus.unknown, null);
+        }
+    }
+
+    /**
+     * Looks up the MX records and the existence of the domain at once and searches for typos meanwhile. The verdict is the same as
+     * the one of the sequential lookups.
+     *
+     * @param domain the domain in its ASCII form.
+     * @param cancel the signal for giving up.
+     * @return the verdict for the domain.
+     * @throws IllegalStateException on network errors or if the check was canceled.
+     */
+    private static Verdict lookUpParallel(final String domain, final Cancellation cancel) throws IllegalStateException {
+        CompletionService<Boolean> existence = new ExecutorCompletionService<Boolean>(asyncExecutor);
+        List<Future<Boolean>> lookups = new ArrayList<Future<Boolean>>(3);
+        Future<Boolean> mx = asyncExecutor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return validateMxServer(domain, cancel);
+            }
+        });
+        lookups.add(mx);
+        lookups.add(existence.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return doesDomainExists(domain, cancel);
+            }
+        }));
+        if(soaLookups) {
+            lookups.add(existence.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return hasStartOfAuthority(domain, cancel);
+                }
+            }));
+        }
+        try {
+            String typo = findTypo(domain);
+            if(await(mx, cancel)) {
+                return new Verdict(AddressStatus.valid, null);
+            } else if(typo != null) {
+                return new Verdict(AddressStatus.typoDetected, typo);
+            }
+            int failed = 0;
+            for(int i = 1; i < lookups.size(); i++) {
+                Future<Boolean> lookup;
+                while((lookup = existence.poll(CANCEL_POLL_INTERVAL, TimeUnit.MILLISECONDS)) == null) {
+                    cancel.check();
+                }
+                try {
+                    if(await(lookup, cancel)) {
+                        return new Verdict(AddressStatus.noMxRecord, null);
+                    }
+                } catch(IllegalStateException e) {
+                    failed++;
+                }
+            }
+            if(failed == lookups.size() - 1) {
+                throw new IllegalStateException();
+            }
+            return new Verdict(AddressStatus.notRegistered, null);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            // the running lookups are not interrupted, they still fill the cache
+            for(Future<Boolean> lookup : lookups) {
+                lookup.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Waits for the result of a lookup.
+     *
+     * @param lookup the lookup.
+     * @param cancel the signal for giving up.
+     * @return the result of the lookup.
+     * @throws IllegalStateException if the lookup failed, the thread was interrupted or the check was canceled.
+     */
+    private static boolean await(Future<Boolean> lookup, Cancellation cancel) throws IllegalStateException {
+        try {
+            for(; ; ) {
+                try {
+                    return lookup.get(CANCEL_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                } catch(TimeoutException e) {
+                    cancel.check();
+                }
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch(ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Looks up the closest well known domain.
+     *
+     * @param domain the domain which should be checked.
+     * @return the closest domain or <code>null</code> if no domain is similar.
+     */
+    private static String findTypo(String domain) {
+        MetricsListener listener = metrics;
+        if(listener == null) {
+            return index.closest(domain, 2);
+        }
+        long start = System.nanoTime();
+        String typo = index.closest(domain, 2);
+        listener.onStage(Stage.typo, domain, typo == null ? Lookup.HOST_NOT_FOUND : Lookup.SUCCESSFUL, false,
+                System.nanoTime() - start);
+        return typo;
+    }
+
+    /**
+     * Sends a query to the resolver and reports its duration and result.
+     *
+     * @param stage the stage of the check.
+     * @param name  the queried name.
+     * @param type  the record type.
+     * @return the answer.
+     */
+    private static DnsAnswer query(Stage stage, String name, int type) {
+        MetricsListener listener = metrics;
+        if(listener == null) {
+            return resolver.query(name, type);
+        }
+        long start = System.nanoTime();
+        DnsAnswer answer = resolver.query(name, type);
+        listener.onStage(stage, name, answer.getResult(), false, System.nanoTime() - start);
+        return answer;
+    }
+
+    /**
+     * Reports a lookup which was answered by the cache.
+     *
+     * @param stage the stage of the check.
+     * @param name  the queried name.
+     * @param found if records were found.
+     */
+    private static void reportCached(Stage stage, String name, boolean found) {
+        MetricsListener listener = metrics;
+        if(listener != null) {
+            listener.onStage(stage, name, found ? Lookup.SUCCESSFUL : Lookup.HOST_NOT_FOUND, true, 0);
+        }
+    }
+
+    /**
+     * Checks if a NS record exists for the given domain. Concurrent checks of the same domain share one lookup.
+     *
+     * @param domain the domain which should be checked.
+     * @param cancel the signal for giving up.
+     * @return true if a NS record was found.
+     * @throws IllegalStateException on network errors or if the check was canceled.
+     */
+    private static boolean doesDomainExists(final String domain, Cancellation cancel) throws IllegalStateException {
+        Boolean cached = cache.get(domain, Type.NS);
+        if(cached != null) {
+            reportCached(Stage.ns, domain, cached);
+            return cached;
+        }
+        return inFlight.get(DomainCache.key(domain, Type.NS), new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return lookupNameServer(domain);
+            }
+        }, cancel);
+    }
+
+    /**
+     * Looks up the NS records of the given domain.
+     *
+     * @param domain the domain which should be checked.
+     * @return true if a NS record was found.
+     * @throws IllegalStateException on network errors.
+     */
+    private static boolean lookupNameServer(String domain) throws IllegalStateException {
+        DnsAnswer answer = query(Stage.ns, domain, Type.NS);
+        if(answer.isTemporaryFailure()) {
+            throw new IllegalStateException();
+        }
+        boolean found = answer.isSuccessful();
+        cache.put(domain, Type.NS, found, found ? answer.getTtl() : Long.MAX_VALUE);
+        return found;
+    }
+
+    /**
+     * Checks if the given domain exists by looking up its SOA record. Concurrent checks of the same domain share one lookup.
+     *
+     * @param domain the domain which should be checked.
+     * @param cancel the signal for giving up.
+     * @return true if the domain exists.
+     * @throws IllegalStateException on network errors or if the check was canceled.
+     */
+    private static boolean hasStartOfAuthority(final String domain, Cancellation cancel) throws IllegalStateException {
+        Boolean cached = cache.get(domain, Type.SOA);
+        if(cached != null) {
+            reportCached(Stage.soa, domain, cached);
+            return cached;
+        }
+        return inFlight.get(DomainCache.key(domain, Type.SOA), new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return lookupStartOfAuthority(domain);
+            }
+        }, cancel);
+    }
+
+    /**
+     * Looks up the SOA record of the given domain. A domain exists if it has a SOA record or if it has records of other types.
+     *
+     * @param domain the domain which should be checked.
+     * @return true if the domain exists.
+     * @throws IllegalStateException on network errors.
+     */
+    private static boolean lookupStartOfAuthority(String domain) throws IllegalStateException {
+        DnsAnswer answer = query(Stage.soa, domain, Type.SOA);
+        if(answer.isTemporaryFailure()) {
+            throw new IllegalStateException();
+        }
+        boolean found = answer.isSuccessful() || answer.getResult() == Lookup.TYPE_NOT_FOUND;
+        cache.put(domain, Type.SOA, found, answer.isSuccessful() ? answer.getTtl() : Long.MAX_VALUE);
+        return found;
+    }
+
+    /**
+     * Returns the domain portion of the mail address.
+     *
+     * @param mail the input mail address.
+     * @return <code>null</code> if the mail address is malformed or the domain.
+     */
+    static String getDomain(String mail) {
+        int syntax = AddressSyntax.scan(mail);
+        if(AddressSyntax.category(syntax) != AddressSyntax.VALID) {
+            return null;
+        }
+        String domain = mail.substring(AddressSyntax.position(syntax) + 1);
+        if(AddressSyntax.isAscii(domain) || !IDN_SUPPORTED) {
+            // without IDN support the lookup of the unicode domain will simply fail
+            return domain;
+        }
+        try {
+            return IDN.toASCII(domain);
+        } catch(IllegalArgumentException e) {
+            // e.g. a label which is longer than 63 characters after the conversion
+            return null;
+        }
+    }
+
+    /**
+     * Checks if a MX record exists for the given domain. Concurrent checks of the same domain share one lookup.
+     *
+     * @param domain the domain which should be checked.
+     * @param cancel the signal for giving up.
+     * @return true if a MX record was found.
+     * @throws IllegalStateException on network errors or if the check was canceled.
+     */
+    private static boolean validateMxServer(final String domain, Cancellation cancel) throws IllegalStateException {
+        Boolean cached = cache.get(domain, Type.MX);
+        if(cached != null) {
+            reportCached(Stage.mx, domain, cached);
+            return cached;
+        }
+        return inFlight.get(DomainCache.key(domain, Type.MX), new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return lookupMxServer(domain);
+            }
+        }, cancel);
+    }
+
+    /**
+     * Looks up the MX records of the given domain and resolves their targets.
+     *
+     * @param domain the domain which should be checked.
+     * @return true if a MX record with a resolvable target was found.
+     * @throws IllegalStateException on network errors.
+     */
+    private static boolean lookupMxServer(String domain) throws IllegalStateException {
+        DnsAnswer answer = query(Stage.mx, domain, Type.MX);
+        if(answer.isTemporaryFailure()) {
+            throw new IllegalStateException();
+        }
+        if(answer.isSuccessful()) {
+            // a target which could not be resolved because of a network error throws, so that no false verdict is cached
+            long ttl = resolveMxTargets(answer);
+            if(ttl >= 0) {
+                cache.put(domain, Type.MX, true, Math.min(answer.getTtl(), ttl));
+                return true;
+            }
+        }
+        // System.err.println("Fail: not mx record for " + domain + " found");
+        cache.put(domain, Type.MX, false, Long.MAX_VALUE);
+        return false;
+    }
+
+    /**
+     * Resolves the targets of the given MX answer concurrently. The glue records of the MX response are used if there are any,
+     * otherwise all targets are queried in the order of their priority. The first target which resolves wins, the lookups of the
+     * other targets are canceled.
+     *
+     * @param answer the MX answer.
+     * @return the TTL of the resolved address in seconds or <code>-1</code> if no target could be resolved.
+     * @throws IllegalStateException if no target could be resolved and at least one of them failed with a network error or if the
+     *                               thread was interrupted while waiting.
+     */
+    private static long resolveMxTargets(DnsAnswer answer) throws IllegalStateException {
+        String[] targets = answer.getData();
+        for(String target : targets) {
+            if(answer.hasGlue(target)) {
+                return answer.getTtl();
+            }
+        }
+        CompletionService<Long> lookups = new ExecutorCompletionService<Long>(targetExecutor);
+        List<Future<Long>> pending = new ArrayList<Future<Long>>(targets.length);
+        Throwable failure = null;
+        try {
+            for(final String target : targets) {
+                pending.add(lookups.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return resolveAddress(target);
+                    }
+                }));
+            }
+            for(int i = 0; i < targets.length; i++) {
+                try {
+                    long ttl = lookups.take().get();
+                    if(ttl >= 0) {
+                        return ttl;
+                    }
+                } catch(ExecutionException e) {
+                    failure = e.getCause();
+                }
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            for(Future<Long> lookup : pending) {
+                lookup.cancel(true);
+            }
+        }
+        if(failure != null) {
+            throw new IllegalStateException(failure);
+        }
+        return -1;
+    }
+
+    /**
+     * Looks up the A and if required the AAAA records of the given host.
+     *
+     * @param host the host to resolve.
+     * @return the TTL of the found records in seconds or <code>-1</code> if the host could not been resolved.
+     * @throws IllegalStateException if the host could not been resolved because of a network error.
+     */
+    private static long resolveAddress(String host) throws IllegalStateException {
+        boolean failed = false;
+        for(int type : ADDRESS_TYPES) {
+            DnsAnswer answer = query(Stage.address, host, type);
+            if(answer.isSuccessful()) {
+                return answer.getTtl();
+            }
+            failed |= answer.isTemporaryFailure();
+        }
+        if(failed) {
+            throw new IllegalStateException();
+        }
+        return -1;
+    }
+
+    /**
+     * @return <code>true</code> if <code>java.net.IDN</code> can be used.
+     */
+    private static boolean isIdnSupported() {
+        try {
+            Class.forName("java.net.IDN");
+            return true;
+        } catch(ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the executor for resolving the MX targets, its idle threads end after some seconds.
+     */
+    private static ThreadPoolExecutor createTargetExecutor() {
+        int threads = MAX_PARALLEL_LOOKUPS * TARGETS_PER_LOOKUP;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), daemonThreads("MailChecker-target"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates a ThreadFactory for daemon threads, so that the checks never block the exit of the application.
+     *
+     * @param name the prefix of the thread names.
+     * @return the ThreadFactory.
+     */
+    static ThreadFactory daemonThreads(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Calculated the Damerau-Levenshtein-Distance up to the given limit. Only the diagonal band of the matrix which can lead to a
+     * distance within the limit is computed and the calculation stops as soon as the whole band exceeds the limit. The matrix is
+     * reused per thread and the last occurrences of the characters are searched within the band instead of using a table indexed
+     * by the characters, so any character is supported.
+     *
+     * @param a   input string one.
+     * @param b   input string two.
+     * @param max the maximal distance of interest.
+     * @return the distance or <code>max + 1</code> if the distance is greater than <code>max</code>.
+     * @see <a href="http://stackoverflow.com/a/6035519/995926">the unbounded version by M. Jessup</a>
+     */
+    static int damerauLevenshteinDistance(String a, String b, int max) {
+        final int n = a.length();
+        final int m = b.length();
+        final int outside = max + 1;
+        if(Math.abs(n - m) > max) {
+            return outside;
+        }
+        if(n == 0 || m == 0) {
+            return Math.max(n, m);
+        }
+        final int width = m + 1;
+        int[] d = distanceMatrix.get();
+        if(d.length < (n + 1) * width) {
+            d = new int[(n + 1) * width];
+            distanceMatrix.set(d);
+        }
+        for(int j = Math.min(m, outside); j >= 0; j--) {
+            d[j] = j;
+        }
+        for(int i = 1; i <= n; i++) {
+            final int lo = Math.max(1, i - max);
+            final int hi = Math.min(m, i + max);
+            final int row = i * width;
+            final int prev = row - width;
+            final char ca = a.charAt(i - 1);
+            // the cells next to the band were not computed, they are outside of the limit
+            d[row + lo - 1] = lo == 1 ? i : outside;
+            if(i > 1 && hi == i + max) {
+                d[prev + hi] = outside;
+            }
+            // the last column left of the band with the current character of a
+            int db = 0;
+            for(int j = lo - 1; j >= 1 && j >= lo - outside; j--) {
+                if(b.charAt(j - 1) == ca) {
+                    db = j;
+                    break;
+                }
+            }
+            int rowMin = outside;
+            for(int j = lo; j <= hi; j++) {
+                final char cb = b.charAt(j - 1);
+                final int j1 = db;
+                int value;
+                if(ca == cb) {
+                    db = j;
+                    value = d[prev + j - 1];
+                } else {
+                    value = d[prev + j - 1] + 1;
+                }
+                value = Math.min(value, Math.min(d[row + j - 1], d[prev + j]) + 1);
+                if(j1 > 0) {
+                    // the last row above with the current character of b, transpositions from further away exceed the limit
+                    for(int i1 = i - 1; i1 >= 1 && i1 >= i - outside; i1--) {
+                        if(a.charAt(i1 - 1) == cb) {
+                            if(Math.abs(i1 - j1) <= max) {
+                                value = Math.min(value, d[(i1 - 1) * width + j1 - 1] + (i - i1 - 1) + 1 + (j - j1 - 1));
+                            }
+                            break;
+                        }
+                    }
+                }
+                d[row + j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if(rowMin > max) {
+                return outside;
+            }
+        }
+        return Math.min(d[n * width + m], outside);
+    }
+
+    /**
+     * The result of a domain check.
+     */
+    static final class Verdict {
+        /**
+         * The verdict for malformed mail addresses.
+         */
+        static final Verdict WRONG_SCHEMA = new Verdict(AddressStatus.wrongSchema, null);
+        /**
+         * The status of the domain.
+         */
+        final AddressStatus status;
+        /**
+         * The suggested domain in case of a detected typo.
+         */
+        final String domain;
+
+        Verdict(AddressStatus status, String domain) {
+            this.status = status;
+            this.domain = domain;
+        }
+
+        /**
+         * Replaces the domain of the given mail address with the suggested domain.
+         *
+         * @param mail the input mail address.
+         * @return the suggested mail address or <code>null</code> if there is no suggestion.
+         */
+        String suggest(String mail) {
+            return domain == null ? null : mail.substring(0, mail.lastIndexOf('@') + 1) + domain;
+        }
+    }
+
+    /**
+     * A signal for giving up a check whose result is not needed anymore.
+     */
+    abstract static class Cancellation {
+        /**
+         * A signal which is never set.
+         */
+        static final Cancellation NEVER = new Cancellation() {
+            @Override
+            boolean isCanceled() {
+                return false;
+            }
+        };
+
+        /**
+         * @return <code>true</code> if the check should give up.
+         */
+        abstract boolean isCanceled();
+
+        /**
+         * Gives up the check if required.
+         *
+         * @throws IllegalStateException if the check should give up.
+         */
+        void check() throws IllegalStateException {
+            if(isCanceled()) {
+                throw new IllegalStateException("canceled");
+            }
+        }
+    }
+
+    /**
+     * A listener for the timings and outcomes of the checks, see {@link #setMetricsListener(MetricsListener)}. It is invoked on the
+     * threads doing the lookups, so the implementation must be thread safe and fast.
+     *
+     * @author René Kilczan
+     */
+    public interface MetricsListener {
+        /**
+         * Invoked when a stage of a check is done. Concurrent checks of the same domain share their lookups, so the lookup is only
+         * reported once.
+         *
+         * @param stage    the stage.
+         * @param name     the queried name.
+         * @param result   the result code of the resolver like <code>Lookup.SUCCESSFUL</code>, <code>Lookup.TRY_AGAIN</code> or
+         *                 {@link DnsAnswer#SERVER_FAILURE}. Cached answers are reported as <code>Lookup.SUCCESSFUL</code> or <code>Lookup.HOST_NOT_FOUND</code>,
+         *                 the typo search reports <code>Lookup.SUCCESSFUL</code> if a similar domain was found.
+         * @param cached   <code>true</code> if the lookup was answered by the cache.
+         * @param duration the duration of the stage in nanoseconds.
+         */
+        void onStage(Stage stage, String name, int result, boolean cached, long duration);
+
+        /**
+         * Invoked when the check of a domain is done and for every malformed mail address. A check which gave up because of network
+         * errors or a cancellation ends with the status unknown.
+         *
+         * @param domain   the domain in its ASCII form or <code>null</code> if the mail address is malformed.
+         * @param status   the final status.
+         * @param duration the duration of the check in nanoseconds.
+         */
+        void onCheck(String domain, AddressStatus status, long duration);
+    }
+
+    /**
+     * A listener for the result of {@link #validateAsync(String, Executor, long, ResultListener)}.
+     *
+     * @author René Kilczan
+     */
+    public interface ResultListener {
+        /**
+         * Invoked when the check of the mail address is done.
+         *
+         * @param result the result of the validation.
+         */
+        void onResult(ValidationResult result);
+    }
+
+    /**
+     * A listener for the results of {@link #validateAll(Iterator, int, boolean, BulkListener)}.
+     *
+     * @author René Kilczan
+     */
+    public interface BulkListener {
+        /**
+         * Invoked when the check of a mail address is done.
+         *
+         * @param index  the position of the mail address in the input.
+         * @param result the result of the validation.
+         */
+        void onResult(int index, ValidationResult result);
+    }
+}
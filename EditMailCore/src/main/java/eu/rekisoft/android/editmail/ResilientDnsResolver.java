@@ -0,0 +1,423 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Lookup;
+import org.xbill.DNS.ResolverConfig;
+import org.xbill.DNS.SimpleResolver;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link DnsResolver} which spreads the queries over several resolvers, e.g. one per DNS server, and tracks their health:
+ * <ul>
+ * <li>The query is sent to the resolver with the best latency and failure rate. If it does not answer within the hedge
+ * percentile of its recent latencies, the query is sent to the next resolver too and the first answer wins.</li>
+ * <li>A network error is retried with the next resolver right away.</li>
+ * <li>After {@link #FAILURE_THRESHOLD} network errors in a row the circuit breaker of a resolver opens and the resolver is skipped
+ * for some seconds, then a single probe query decides if it is used again. While the breakers of all resolvers are open the
+ * queries fail immediately with <code>Lookup.TRY_AGAIN</code>, so that the checks end as unknown without waiting for the
+ * timeout.</li>
+ * </ul>
+ * Only <code>Lookup.TRY_AGAIN</code> counts as failure. A non existing domain is a valid answer and so is
+ * {@link DnsAnswer#SERVER_FAILURE}, which the broken name servers of a single domain cause on a healthy resolver.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public class ResilientDnsResolver implements DnsResolver {
+    /**
+     * The count of network errors in a row which open the circuit breaker of a resolver.
+     */
+    public static final int FAILURE_THRESHOLD = 3;
+    /**
+     * The time in milliseconds a circuit breaker stays open the first time, it doubles every time the probe query fails.
+     */
+    public static final long OPEN_TIME = 5000;
+    /**
+     * The maximal time in milliseconds a circuit breaker stays open.
+     */
+    public static final long MAX_OPEN_TIME = 60000;
+    /**
+     * The hedge delay in milliseconds until enough latencies of a resolver are known.
+     */
+    public static final long DEFAULT_HEDGE_DELAY = 300;
+    /**
+     * The minimal hedge delay in milliseconds, so that fast resolvers do not get hedged all the time.
+     */
+    private static final long MIN_HEDGE_DELAY = 20;
+    /**
+     * The count of the recent latencies per resolver.
+     */
+    private static final int SAMPLES = 32;
+    /**
+     * The count of latencies which are needed for computing the hedge delay.
+     */
+    private static final int MIN_SAMPLES = 8;
+    /**
+     * The weight of the latest outcome in the failure rate.
+     */
+    private static final double FAILURE_WEIGHT = 0.2;
+    private static final DnsAnswer UNAVAILABLE = DnsAnswer.failed(Lookup.TRY_AGAIN);
+    private static final ExecutorService executor = Executors.newCachedThreadPool(MailChecker.daemonThreads("ResilientDns"));
+
+    private final Health[] resolvers;
+    private volatile double hedgeQuantile = 0.9;
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong failovers = new AtomicLong();
+    private final AtomicLong shortCircuits = new AtomicLong();
+
+    /**
+     * Creates a new ResilientDnsResolver.
+     *
+     * @param resolvers the resolvers, their order decides which one is preferred as long as nothing is known about them.
+     */
+    public ResilientDnsResolver(DnsResolver... resolvers) {
+        if(resolvers.length == 0) {
+            throw new IllegalArgumentException("At least one resolver is required");
+        }
+        this.resolvers = new Health[resolvers.length];
+        for(int i = 0; i < resolvers.length; i++) {
+            this.resolvers[i] = new Health(resolvers[i]);
+        }
+    }
+
+    /**
+     * Creates a ResilientDnsResolver with one resolver per DNS server of the system. If the servers are unknown the
+     * {@link DnsjavaResolver} with the default configuration is used.
+     *
+     * @param timeout the network timeout in seconds.
+     * @return the new resolver.
+     */
+    public static ResilientDnsResolver forSystemServers(int timeout) {
+        String[] servers = ResolverConfig.getCurrentConfig().servers();
+        if(servers != null && servers.length > 0) {
+            try {
+                return forServers(timeout, servers);
+            } catch(UnknownHostException e) {
+                // fall back to the default configuration
+            }
+        }
+        return new ResilientDnsResolver(new DnsjavaResolver(timeout));
+    }
+
+    /**
+     * Creates a ResilientDnsResolver with one resolver per DNS server.
+     *
+     * @param timeout the network timeout in seconds.
+     * @param servers the host names or addresses of the DNS servers.
+     * @return the new resolver.
+     * @throws UnknownHostException if a host name cannot be resolved.
+     */
+    public static ResilientDnsResolver forServers(int timeout, String... servers) throws UnknownHostException {
+        DnsResolver[] resolvers = new DnsResolver[servers.length];
+        for(int i = 0; i < servers.length; i++) {
+            SimpleResolver resolver = new SimpleResolver(servers[i]);
+            resolver.setTimeout(timeout);
+            resolvers[i] = new DnsjavaResolver(resolver, Lookup.getDefaultCache(DClass.IN));
+        }
+        return new ResilientDnsResolver(resolvers);
+    }
+
+    @Override
+    public DnsAnswer query(final String name, final int type) {
+        long now = System.currentTimeMillis();
+        List<Health> candidates = candidates(now);
+        CompletionService<DnsAnswer> queries = new ExecutorCompletionService<DnsAnswer>(executor);
+        int next = start(candidates, 0, queries, name, type, now);
+        if(next < 0) {
+            shortCircuits.incrementAndGet();
+            return UNAVAILABLE;
+        }
+        Health hedged = candidates.get(next - 1);
+        int running = 1;
+        DnsAnswer answer = UNAVAILABLE;
+        try {
+            while(running > 0) {
+                Future<DnsAnswer> done;
+                if(running == 1 && next < candidates.size()) {
+                    done = queries.poll(hedged.hedgeDelay(hedgeQuantile), TimeUnit.MILLISECONDS);
+                    if(done == null) {
+                        // the resolver is slower than usual, ask the next one too
+                        int started = start(candidates, next, queries, name, type, System.currentTimeMillis());
+                        if(started > 0) {
+                            hedges.incrementAndGet();
+                            next = started;
+                            running++;
+                        } else {
+                            next = candidates.size();
+                        }
+                        continue;
+                    }
+                } else {
+                    done = queries.take();
+                }
+                running--;
+                answer = done.get();
+                if(answer.getResult() != Lookup.TRY_AGAIN) {
+                    return answer;
+                } else if(running == 0 && next < candidates.size()) {
+                    int started = start(candidates, next, queries, name, type, System.currentTimeMillis());
+                    if(started > 0) {
+                        failovers.incrementAndGet();
+                        hedged = candidates.get(started - 1);
+                        next = started;
+                        running++;
+                    }
+                }
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch(ExecutionException e) {
+            // cannot happen, the queries catch everything
+        }
+        return answer;
+    }
+
+    /**
+     * @return the resolvers which may be used ordered by their score, the best one first.
+     */
+    private List<Health> candidates(long now) {
+        List<Health> candidates = new ArrayList<Health>(resolvers.length);
+        List<Double> scores = new ArrayList<Double>(resolvers.length);
+        for(Health health : resolvers) {
+            if(health.isCandidate(now)) {
+                // the scores change concurrently, so they are read once; there are just a few resolvers
+                double score = health.score();
+                int i = scores.size();
+                while(i > 0 && scores.get(i - 1) > score) {
+                    i--;
+                }
+                candidates.add(i, health);
+                scores.add(i, score);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Sends the query to the first resolver which may be used, starting with the given candidate.
+     *
+     * @return the index behind the used candidate or <code>-1</code> if no candidate may be used.
+     */
+    private static int start(List<Health> candidates, int from, CompletionService<DnsAnswer> queries, final String name,
+                             final int type, long now) {
+        for(int i = from; i < candidates.size(); i++) {
+            final Health health = candidates.get(i);
+            if(health.acquire(now)) {
+                queries.submit(new Callable<DnsAnswer>() {
+                    @Override
+                    public DnsAnswer call() throws Exception {
+                        return health.query(name, type);
+                    }
+                });
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sets the percentile of the recent latencies of a resolver after which the query is sent to the next resolver too. Lower
+     * values cut the tail latency but cost more queries.
+     *
+     * @param quantile the quantile between 0 and 1, by default 0.9.
+     */
+    public void setHedgeQuantile(double quantile) {
+        hedgeQuantile = Math.max(0, Math.min(1, quantile));
+    }
+
+    /**
+     * @return <code>true</code> if the circuit breaker of at least one resolver is closed or waits for a probe query.
+     */
+    public boolean isAvailable() {
+        long now = System.currentTimeMillis();
+        for(Health health : resolvers) {
+            if(health.isCandidate(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param index the index of the resolver as passed to the constructor.
+     * @return <code>true</code> if the circuit breaker of the resolver is closed.
+     */
+    public boolean isHealthy(int index) {
+        return resolvers[index].isClosed();
+    }
+
+    /**
+     * @param index the index of the resolver as passed to the constructor.
+     * @return the failure rate of the recent queries of the resolver between 0 and 1.
+     */
+    public double getFailureRate(int index) {
+        return resolvers[index].failureRate();
+    }
+
+    /**
+     * @param index    the index of the resolver as passed to the constructor.
+     * @param quantile the quantile between 0 and 1, e.g. 0.5.
+     * @return the percentile of the recent latencies of the resolver in milliseconds or <code>-1</code> if none are known.
+     */
+    public long getLatency(int index, double quantile) {
+        return resolvers[index].latency(quantile);
+    }
+
+    /**
+     * @return the count of queries which were sent to a second resolver because the first one was slow.
+     */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * @return the count of queries which were sent to another resolver because of a network error.
+     */
+    public long getFailoverCount() {
+        return failovers.get();
+    }
+
+    /**
+     * @return the count of queries which failed immediately because all circuit breakers were open.
+     */
+    public long getShortCircuitCount() {
+        return shortCircuits.get();
+    }
+
+    /**
+     * The latencies, the failure rate and the circuit breaker of one resolver.
+     */
+    private static final class Health {
+        private final DnsResolver resolver;
+        private final long[] latencies = new long[SAMPLES];
+        /**
+         * The count of valid latencies, at most {@link #SAMPLES}.
+         */
+        private int samples;
+        /**
+         * The position of the next latency, the oldest one is overwritten once all are valid.
+         */
+        private int next;
+        private int consecutiveFailures;
+        private double failureRate;
+        private long openUntil;
+        private long openTime = OPEN_TIME;
+        private boolean open;
+        private boolean probing;
+
+        Health(DnsResolver resolver) {
+            this.resolver = resolver;
+        }
+
+        DnsAnswer query(String name, int type) {
+            long start = System.nanoTime();
+            DnsAnswer answer;
+            try {
+                answer = resolver.query(name, type);
+            } catch(RuntimeException e) {
+                answer = UNAVAILABLE;
+            }
+            record(answer.getResult() != Lookup.TRY_AGAIN, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return answer;
+        }
+
+        /**
+         * @return <code>true</code> if the breaker is closed or a probe query may be sent.
+         */
+        synchronized boolean isCandidate(long now) {
+            return !open || !probing && now >= openUntil;
+        }
+
+        /**
+         * Checks if a query may be sent, a half open breaker lets exactly one probe query through.
+         */
+        synchronized boolean acquire(long now) {
+            if(!open) {
+                return true;
+            } else if(probing || now < openUntil) {
+                return false;
+            }
+            probing = true;
+            return true;
+        }
+
+        synchronized void record(boolean success, long latency) {
+            failureRate += ((success ? 0 : 1) - failureRate) * FAILURE_WEIGHT;
+            if(success) {
+                latencies[next] = latency;
+                next = (next + 1) % SAMPLES;
+                if(samples < SAMPLES) {
+                    samples++;
+                }
+                consecutiveFailures = 0;
+                open = false;
+                probing = false;
+                openTime = OPEN_TIME;
+            } else if(probing) {
+                probing = false;
+                openTime = Math.min(MAX_OPEN_TIME, openTime * 2);
+                openUntil = System.currentTimeMillis() + openTime;
+            } else if(++consecutiveFailures >= FAILURE_THRESHOLD && !open) {
+                open = true;
+                openUntil = System.currentTimeMillis() + openTime;
+            }
+        }
+
+        synchronized boolean isClosed() {
+            return !open;
+        }
+
+        synchronized double failureRate() {
+            return failureRate;
+        }
+
+        synchronized long latency(double quantile) {
+            int count = samples;
+            if(count == 0) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(quantile * count);
+            return sorted[Math.max(0, Math.min(count, rank) - 1)];
+        }
+
+        long hedgeDelay(double quantile) {
+            synchronized(this) {
+                if(samples < MIN_SAMPLES) {
+                    return DEFAULT_HEDGE_DELAY;
+                }
+            }
+            return Math.max(MIN_HEDGE_DELAY, latency(quantile));
+        }
+
+        /**
+         * @return the expected latency of the resolver weighted by its failure rate, lower is better. Resolvers without a known
+         * latency are preferred, so that every resolver gets measured.
+         */
+        synchronized double score() {
+            long median = samples == 0 ? 0 : latency(0.5);
+            return (median + MIN_HEDGE_DELAY) * (1 + 4 * failureRate);
+        }
+    }
+}
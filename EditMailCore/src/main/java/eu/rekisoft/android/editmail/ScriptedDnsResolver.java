@@ -0,0 +1,248 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import org.xbill.DNS.Lookup;
+import org.xbill.DNS.Type;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory {@link DnsResolver} for tests and benchmarks. The answers, latencies, timeouts and temporary failures are scripted, so
+ * the MailChecker can be measured without network access. Names which were not scripted are answered with
+ * <code>Lookup.HOST_NOT_FOUND</code>.
+ * <p/>
+ * Example:
+ * <pre>
+ * ScriptedDnsResolver dns = new ScriptedDnsResolver()
+ *         .mx("example.com", "mx1.example.com", "mx2.example.com")
+ *         .address("mx2.example.com")
+ *         .timeout("mx1.example.com", Type.A)
+ *         .latency(20);
+ * MailChecker.setResolver(dns);
+ * </pre>
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public class ScriptedDnsResolver implements DnsResolver {
+    /**
+     * The TTL of the scripted records in seconds.
+     */
+    public static final long DEFAULT_TTL = 3600;
+
+    private static final Script NOT_SCRIPTED = new Script();
+
+    private final ConcurrentHashMap<String, Script> scripts = new ConcurrentHashMap<String, Script>();
+    private final AtomicLong queries = new AtomicLong();
+    private volatile long latency;
+    private volatile long timeout = 1000;
+
+    /**
+     * Scripts the answer of a query.
+     *
+     * @param name   the queried name.
+     * @param type   the record type like <code>Type.MX</code>.
+     * @param answer the answer.
+     * @return this.
+     */
+    public ScriptedDnsResolver answer(String name, int type, DnsAnswer answer) {
+        Script script = script(name, type);
+        script.answer = answer;
+        return this;
+    }
+
+    /**
+     * Scripts the MX records of a domain together with the NS record of the domain.
+     *
+     * @param domain  the domain.
+     * @param targets the mail servers ordered by their priority.
+     * @return this.
+     */
+    public ScriptedDnsResolver mx(String domain, String... targets) {
+        answer(domain, Type.NS, DnsAnswer.found(DEFAULT_TTL, "ns." + domain));
+        return answer(domain, Type.MX, DnsAnswer.found(DEFAULT_TTL, targets));
+    }
+
+    /**
+     * Scripts a domain which exists but has no MX record.
+     *
+     * @param domain the domain.
+     * @return this.
+     */
+    public ScriptedDnsResolver noMx(String domain) {
+        answer(domain, Type.NS, DnsAnswer.found(DEFAULT_TTL, "ns." + domain));
+        return answer(domain, Type.MX, DnsAnswer.failed(Lookup.TYPE_NOT_FOUND));
+    }
+
+    /**
+     * Scripts an A record of a host.
+     *
+     * @param host the host.
+     * @return this.
+     */
+    public ScriptedDnsResolver address(String host) {
+        return answer(host, Type.A, DnsAnswer.found(DEFAULT_TTL, "192.0.2.1"));
+    }
+
+    /**
+     * Scripts a query which is not answered within the timeout.
+     *
+     * @param name the queried name.
+     * @param type the record type like <code>Type.MX</code>.
+     * @return this.
+     */
+    public ScriptedDnsResolver timeout(String name, int type) {
+        Script script = script(name, type);
+        script.answer = DnsAnswer.failed(Lookup.TRY_AGAIN);
+        script.timeout = true;
+        return this;
+    }
+
+    /**
+     * Scripts a query which fails temporary.
+     *
+     * @param name the queried name.
+     * @param type the record type like <code>Type.MX</code>.
+     * @return this.
+     */
+    public ScriptedDnsResolver tryAgain(String name, int type) {
+        return answer(name, type, DnsAnswer.failed(Lookup.TRY_AGAIN));
+    }
+
+    /**
+     * Scripts a query which the DNS server answers with SERVFAIL, like a domain with broken name servers.
+     *
+     * @param name the queried name.
+     * @param type the record type like <code>Type.MX</code>.
+     * @return this.
+     */
+    public ScriptedDnsResolver serverFailure(String name, int type) {
+        return answer(name, type, DnsAnswer.failed(DnsAnswer.SERVER_FAILURE));
+    }
+
+    /**
+     * Set the latency of a query.
+     *
+     * @param name   the queried name.
+     * @param type   the record type like <code>Type.MX</code>.
+     * @param millis the latency in milliseconds.
+     * @return this.
+     */
+    public ScriptedDnsResolver latency(String name, int type, long millis) {
+        script(name, type).latency = millis;
+        return this;
+    }
+
+    /**
+     * Set the latency of all queries without an own latency.
+     *
+     * @param millis the latency in milliseconds.
+     * @return this.
+     */
+    public ScriptedDnsResolver latency(long millis) {
+        latency = millis;
+        return this;
+    }
+
+    /**
+     * Set the time after which a timed out query fails.
+     *
+     * @param millis the timeout in milliseconds.
+     * @return this.
+     */
+    public ScriptedDnsResolver setTimeout(long millis) {
+        timeout = millis;
+        return this;
+    }
+
+    /**
+     * @return the count of all queries.
+     */
+    public long getQueryCount() {
+        return queries.get();
+    }
+
+    /**
+     * @param name the queried name.
+     * @param type the record type like <code>Type.MX</code>.
+     * @return the count of queries for the given name and type.
+     */
+    public long getQueryCount(String name, int type) {
+        Script script = scripts.get(key(name, type));
+        return script == null ? 0 : script.queries.get();
+    }
+
+    @Override
+    public DnsAnswer query(String name, int type) {
+        queries.incrementAndGet();
+        Script script = scripts.get(key(name, type));
+        if(script == null) {
+            script = NOT_SCRIPTED;
+        } else {
+            script.queries.incrementAndGet();
+        }
+        long delay = script.timeout ? timeout : script.latency >= 0 ? script.latency : latency;
+        if(delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return DnsAnswer.failed(Lookup.TRY_AGAIN);
+            }
+        }
+        DnsAnswer answer = script.answer;
+        return answer == null ? DnsAnswer.failed(Lookup.HOST_NOT_FOUND) : answer;
+    }
+
+    /**
+     * Returns the script of a query, it is created if required.
+     *
+     * @param name the queried name.
+     * @param type the record type.
+     * @return the script.
+     */
+    private Script script(String name, int type) {
+        String key = key(name, type);
+        Script script = scripts.get(key);
+        if(script == null) {
+            Script created = new Script();
+            script = scripts.putIfAbsent(key, created);
+            if(script == null) {
+                script = created;
+            }
+        }
+        return script;
+    }
+
+    /**
+     * Builds the key of a query, the names are compared case insensitive and without the trailing dot.
+     *
+     * @param name the queried name.
+     * @param type the record type.
+     * @return the key.
+     */
+    private static String key(String name, int type) {
+        if(name.endsWith(".")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        return type + ":" + name.toLowerCase(Locale.US);
+    }
+
+    /**
+     * The scripted behavior of a query.
+     */
+    private static final class Script {
+        final AtomicLong queries = new AtomicLong();
+        volatile DnsAnswer answer;
+        volatile long latency = -1;
+        volatile boolean timeout;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import eu.rekisoft.android.editmail.MailChecker.Cancellation;
+
+/**
+ * De-duplicates concurrent calls with the same key: the first caller starts the call on the executor, all callers which come while
+ * it is running wait for the same result. Each caller can give up waiting without affecting the others.
+ *
+ * @param <V> the type of the result.
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+final class SingleFlight<V> {
+    private final ConcurrentHashMap<String, FutureTask<V>> calls = new ConcurrentHashMap<String, FutureTask<V>>();
+    private final Executor executor;
+
+    /**
+     * Creates a new SingleFlight.
+     *
+     * @param executor the executor which runs the calls.
+     */
+    SingleFlight(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the result of the call with the given key, the call is started if it is not yet running.
+     *
+     * @param key    the key of the call.
+     * @param call   the call which is started if it is not yet running.
+     * @param cancel the signal for giving up waiting.
+     * @return the result of the call.
+     * @throws IllegalStateException if the call failed, the thread was interrupted or the caller gave up.
+     */
+    V get(final String key, Callable<V> call, Cancellation cancel) throws IllegalStateException {
+        FutureTask<V> task = calls.get(key);
+        if(task != null && task.isDone()) {
+            // done() runs after the waiters were released, so a finished call can still be registered
+            calls.remove(key, task);
+            task = null;
+        }
+        if(task == null) {
+            FutureTask<V> created = new FutureTask<V>(call) {
+                @Override
+                protected void done() {
+                    calls.remove(key, this);
+                }
+            };
+            task = calls.putIfAbsent(key, created);
+            if(task == null) {
+                task = created;
+                executor.execute(created);
+            }
+        }
+        try {
+            for(; ; ) {
+                try {
+                    return task.get(MailChecker.CANCEL_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                } catch(TimeoutException e) {
+                    cancel.check();
+                }
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof IllegalStateException) {
+                throw (IllegalStateException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import eu.rekisoft.android.editmail.MailChecker.BulkListener;
+
+/**
+ * Validates a list of mail addresses with one address per line and writes the results as CSV with the columns
+ * <code>address,status,suggestion</code>, one row per input line in the order of the input. Blank lines are skipped. The input is
+ * read while the checks are running and the reading pauses as long as too many results are pending, so the memory usage does not
+ * depend on the size of the input. Usage from the command line:
+ * <pre>
+ * java -cp editmail-core.jar:dnsjava-2.1.6.jar eu.rekisoft.android.editmail.StreamValidator input.txt output.csv [parallelism]
+ * </pre>
+ * Use <code>-</code> for reading from stdin or writing to stdout, the progress is written to stderr.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ * @see MailChecker#validateAll(Iterator, int, boolean, BulkListener)
+ */
+public final class StreamValidator {
+    /**
+     * The default count of domains which are checked at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 32;
+    /**
+     * The default interval of the progress reports in milliseconds.
+     */
+    public static final long DEFAULT_PROGRESS_INTERVAL = 1000;
+    private static final String CHARSET = "UTF-8";
+
+    private final CountingInputStream input;
+    private final long inputLength;
+    private final OutputStream output;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private ProgressListener progressListener;
+    private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+    private long rows;
+    private long lastReport;
+
+    /**
+     * Creates a new StreamValidator, both streams are UTF-8 encoded and are not closed.
+     *
+     * @param input       the mail addresses, one per line.
+     * @param inputLength the length of the input in bytes or <code>-1</code> if it is unknown.
+     * @param output      the stream for the CSV rows.
+     */
+    public StreamValidator(InputStream input, long inputLength, OutputStream output) {
+        this.input = new CountingInputStream(input);
+        this.inputLength = inputLength;
+        this.output = output;
+    }
+
+    /**
+     * Sets the count of domains which are checked at the same time, each check has at most one DNS query on the way unless
+     * parallel lookups are enabled. See also {@link MailChecker#setMaxParallelLookups(int)}.
+     *
+     * @param parallelism the maximal count of concurrent checks, by default {@link #DEFAULT_PARALLELISM}.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Sets the listener for the progress, it is invoked on the thread which runs the validation.
+     *
+     * @param listener the listener or <code>null</code>.
+     * @param interval the interval of the reports in milliseconds.
+     */
+    public void setProgressListener(ProgressListener listener, long interval) {
+        progressListener = listener;
+        progressInterval = interval;
+    }
+
+    /**
+     * Validates all addresses of the input and writes the results, the output is flushed with every progress report and at the
+     * end.
+     *
+     * @return the count of validated rows.
+     * @throws IOException          if the input cannot be read or the output cannot be written.
+     * @throws InterruptedException if the thread was interrupted while waiting for results.
+     */
+    public long run() throws IOException, InterruptedException {
+        final LineIterator lines = new LineIterator(new BufferedReader(new InputStreamReader(input, CHARSET)));
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(output, CHARSET));
+        final long start = System.nanoTime();
+        final long interval = TimeUnit.MILLISECONDS.toNanos(progressInterval);
+        rows = 0;
+        lastReport = start;
+        writer.write("address,status,suggestion\n");
+        try {
+            MailChecker.validateAll(lines, parallelism, true, new BulkListener() {
+                @Override
+                public void onResult(int index, ValidationResult result) {
+                    try {
+                        writeRow(writer, result);
+                        rows++;
+                        long now = System.nanoTime();
+                        if(progressListener != null && now - lastReport >= interval) {
+                            lastReport = now;
+                            writer.flush();
+                            report(now - start);
+                        }
+                    } catch(IOException e) {
+                        throw new WriteFailure(e);
+                    }
+                }
+            });
+        } catch(WriteFailure e) {
+            throw (IOException) e.getCause();
+        }
+        if(lines.error != null) {
+            throw lines.error;
+        }
+        writer.flush();
+        if(progressListener != null) {
+            report(System.nanoTime() - start);
+        }
+        return rows;
+    }
+
+    private void report(long elapsed) {
+        double rowsPerSecond = elapsed > 0 ? rows * 1e9 / elapsed : 0;
+        progressListener.onProgress(rows, input.count, inputLength, rowsPerSecond);
+    }
+
+    private static void writeRow(Writer writer, ValidationResult result) throws IOException {
+        writeField(writer, result.getInput());
+        writer.write(',');
+        writer.write(result.getStatus().name());
+        writer.write(',');
+        writeField(writer, result.getSuggestion());
+        writer.write('\n');
+    }
+
+    /**
+     * Writes a CSV field, it is quoted if it contains a separator or a quote.
+     */
+    private static void writeField(Writer writer, String value) throws IOException {
+        if(value == null) {
+            return;
+        } else if(value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Runs the validation from the command line.
+     *
+     * @param args the input file, the output file and optionally the parallelism.
+     * @throws Exception if the validation failed.
+     */
+    public static void main(String[] args) throws Exception {
+        if(args.length < 2) {
+            System.err.println("Usage: StreamValidator <input|-> <output|-> [parallelism]");
+            System.exit(2);
+        }
+        InputStream in = "-".equals(args[0]) ? System.in : new FileInputStream(args[0]);
+        OutputStream out = "-".equals(args[1]) ? System.out : new FileOutputStream(args[1]);
+        long length = "-".equals(args[0]) ? -1 : new File(args[0]).length();
+        try {
+            StreamValidator validator = new StreamValidator(in, length, out);
+            if(args.length > 2) {
+                validator.setParallelism(Integer.parseInt(args[2]));
+                MailChecker.setMaxParallelLookups(Integer.parseInt(args[2]));
+            }
+            validator.setProgressListener(new ProgressListener() {
+                @Override
+                public void onProgress(long rows, long bytesRead, long totalBytes, double rowsPerSecond) {
+                    String percent = totalBytes > 0 ? String.format(Locale.US, " (%.1f%%)", bytesRead * 100.0 / totalBytes) : "";
+                    System.err.println(String.format(Locale.US, "%d rows%s, %.0f rows/s", rows, percent, rowsPerSecond));
+                }
+            }, DEFAULT_PROGRESS_INTERVAL);
+            validator.run();
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    /**
+     * A listener for the progress of the validation.
+     *
+     * @author René Kilczan
+     */
+    public interface ProgressListener {
+        /**
+         * Invoked periodically while the validation runs and once at its end.
+         *
+         * @param rows          the count of the written rows.
+         * @param bytesRead     the count of the read bytes, the input is read ahead of the written rows.
+         * @param totalBytes    the length of the input or <code>-1</code> if it is unknown.
+         * @param rowsPerSecond the average count of rows per second since the start.
+         */
+        void onProgress(long rows, long bytesRead, long totalBytes, double rowsPerSecond);
+    }
+
+    /**
+     * Reads the non blank lines lazily, a read error ends the input and is thrown after the validation.
+     */
+    private static final class LineIterator implements Iterator<String> {
+        private final BufferedReader reader;
+        private String next;
+        private boolean read;
+        IOException error;
+
+        LineIterator(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if(!read) {
+                read = true;
+                try {
+                    do {
+                        next = reader.readLine();
+                    } while(next != null && next.trim().length() == 0);
+                } catch(IOException e) {
+                    error = e;
+                    next = null;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            read = false;
+            return next.trim();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Counts the read bytes for the progress.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if(n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Transports an error of the output through the listener.
+     */
+    private static final class WriteFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        WriteFailure(IOException cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A bounded memo of misspelled domains and their corrections, so that known typos are answered without any DNS lookup and without
+ * searching the domain list. It is seeded with common misspellings of the big mail providers and learns every suggestion which the
+ * user accepts. When it is full the least recently used correction is dropped.
+ * <p/>
+ * The memo can be exported and imported as text with one <code>typo=correction</code> pair per line, e.g. for sharing the learned
+ * corrections of many users:
+ * <pre>
+ * MailChecker.getTypoMemo().writeTo(writer);
+ * ...
+ * MailChecker.getTypoMemo().readFrom(reader);
+ * </pre>
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public final class TypoMemo {
+    /**
+     * The default maximal count of corrections.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+    /**
+     * The bundled misspellings, they do not exist as mail domains.
+     */
+    @SuppressWarnings("SpellCheckingInspection")
+    private static final String SEEDS = "gmial.com=gmail.com gmal.com=gmail.com gmai.com=gmail.com gamil.com=gmail.com "
+            + "gnail.com=gmail.com gmaill.com=gmail.com gmail.con=gmail.com gmail.cmo=gmail.com gmail.ocm=gmail.com "
+            + "hotmial.com=hotmail.com hotmal.com=hotmail.com hotmai.com=hotmail.com hotmail.con=hotmail.com "
+            + "hotmial.de=hotmail.de hotmal.de=hotmail.de yaho.com=yahoo.com yahoo.con=yahoo.com gmx.ner=gmx.net gmx.nte=gmx.net "
+            + "gmx.dee=gmx.de gmx.con=gmx.com web.dee=web.de googlemial.com=googlemail.com outlok.com=outlook.com "
+            + "outlook.con=outlook.com iclod.com=icloud.com icloud.con=icloud.com";
+    private static final char SEPARATOR = '=';
+
+    private final int maxSize;
+    private final LinkedHashMap<String, String> corrections;
+
+    /**
+     * Creates a new TypoMemo with the bundled misspellings.
+     *
+     * @param maxSize the maximal count of corrections.
+     */
+    public TypoMemo(int maxSize) {
+        this.maxSize = maxSize;
+        corrections = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > TypoMemo.this.maxSize;
+            }
+        };
+        for(String seed : SEEDS.split(" ")) {
+            int separator = seed.indexOf(SEPARATOR);
+            corrections.put(seed.substring(0, separator), seed.substring(separator + 1));
+        }
+    }
+
+    /**
+     * @param domain the domain.
+     * @return the correction of the domain or <code>null</code> if the domain is no known typo.
+     */
+    public synchronized String get(String domain) {
+        return corrections.get(domain.toLowerCase(Locale.US));
+    }
+
+    /**
+     * Remembers a correction. Nothing is remembered if one of the domains is malformed, if both are equal or if the typo is the
+     * domain of a big mail provider.
+     *
+     * @param typo       the misspelled domain.
+     * @param correction the correct domain.
+     * @return <code>true</code> if the correction was remembered.
+     */
+    public boolean learn(String typo, String correction) {
+        String key = typo.trim().toLowerCase(Locale.US);
+        String value = correction.trim().toLowerCase(Locale.US);
+        if(key.equals(value) || !isDomain(key) || !isDomain(value) || KnownDomains.isProvider(key)) {
+            return false;
+        }
+        synchronized(this) {
+            corrections.put(key, value);
+        }
+        return true;
+    }
+
+    /**
+     * Forgets a correction, e.g. when a domain was registered.
+     *
+     * @param typo the misspelled domain.
+     */
+    public synchronized void forget(String typo) {
+        corrections.remove(typo.toLowerCase(Locale.US));
+    }
+
+    /**
+     * @return the count of corrections.
+     */
+    public synchronized int size() {
+        return corrections.size();
+    }
+
+    /**
+     * Writes all corrections with one <code>typo=correction</code> pair per line, the most recently used one last.
+     *
+     * @param writer the target, it is not closed.
+     * @throws IOException if the writer failed.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        String[][] snapshot;
+        synchronized(this) {
+            snapshot = new String[corrections.size()][];
+            int i = 0;
+            for(Map.Entry<String, String> entry : corrections.entrySet()) {
+                snapshot[i++] = new String[]{entry.getKey(), entry.getValue()};
+            }
+        }
+        for(String[] pair : snapshot) {
+            writer.write(pair[0]);
+            writer.write(SEPARATOR);
+            writer.write(pair[1]);
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Reads corrections which were written by {@link #writeTo(Writer)} and adds them to the memo. Empty lines, lines starting with
+     * <code>#</code> and malformed pairs are skipped.
+     *
+     * @param reader the source, it is not closed.
+     * @return the count of added corrections.
+     * @throws IOException if the reader failed.
+     */
+    public int readFrom(Reader reader) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        int count = 0;
+        String line;
+        while((line = lines.readLine()) != null) {
+            int separator = line.indexOf(SEPARATOR);
+            if(separator > 0 && !line.startsWith("#") && learn(line.substring(0, separator), line.substring(separator + 1))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isDomain(String domain) {
+        return AddressSyntax.category(AddressSyntax.scan("a@" + domain)) == AddressSyntax.VALID;
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import org.xbill.DNS.Lookup;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import eu.rekisoft.android.editmail.MailChecker.AddressStatus;
+import eu.rekisoft.android.editmail.MailChecker.MetricsListener;
+import eu.rekisoft.android.editmail.MailChecker.Stage;
+
+/**
+ * Lock free counters and latency histograms for the checks of the {@link MailChecker}. The histograms have one bucket per power of
+ * two nanoseconds, so recording a value is a single atomic increment. Use it like this:
+ * <pre>
+ * ValidationMetrics metrics = new ValidationMetrics();
+ * MailChecker.setMetricsListener(metrics);
+ * ...
+ * long p99 = metrics.getPercentile(Stage.mx, 0.99);
+ * </pre>
+ * Cached lookups are counted but not added to the histograms, so that the histograms show the latency of the network.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public final class ValidationMetrics implements MetricsListener {
+    /**
+     * The count of buckets per histogram, bucket <code>i</code> counts the durations from <code>2^(i-1)</code> up to
+     * <code>2^i - 1</code> nanoseconds.
+     */
+    public static final int BUCKETS = 64;
+    /**
+     * The count of the result codes of the resolver, from <code>Lookup.SUCCESSFUL</code> up to {@link DnsAnswer#SERVER_FAILURE}.
+     */
+    private static final int RESULTS = DnsAnswer.SERVER_FAILURE + 1;
+    private static final Stage[] STAGES = Stage.values();
+    private static final AddressStatus[] STATUSES = AddressStatus.values();
+
+    private final AtomicLongArray stageHistograms = new AtomicLongArray(STAGES.length * BUCKETS);
+    private final AtomicLongArray results = new AtomicLongArray(STAGES.length * RESULTS);
+    private final AtomicLongArray cacheHits = new AtomicLongArray(STAGES.length);
+    private final AtomicLongArray checkHistogram = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray statuses = new AtomicLongArray(STATUSES.length);
+
+    @Override
+    public void onStage(Stage stage, String name, int result, boolean cached, long duration) {
+        int s = stage.ordinal();
+        if(result >= 0 && result < RESULTS) {
+            results.incrementAndGet(s * RESULTS + result);
+        }
+        if(cached) {
+            cacheHits.incrementAndGet(s);
+        } else {
+            stageHistograms.incrementAndGet(s * BUCKETS + bucket(duration));
+        }
+    }
+
+    @Override
+    public void onCheck(String domain, AddressStatus status, long duration) {
+        statuses.incrementAndGet(status.ordinal());
+        checkHistogram.incrementAndGet(bucket(duration));
+    }
+
+    /**
+     * @param stage the stage.
+     * @return the count of the lookups of the stage including the cached ones.
+     */
+    public long getCount(Stage stage) {
+        long count = 0;
+        for(int i = 0; i < RESULTS; i++) {
+            count += results.get(stage.ordinal() * RESULTS + i);
+        }
+        return count;
+    }
+
+    /**
+     * @param stage the stage.
+     * @return the count of the lookups of the stage which were answered by the cache.
+     */
+    public long getCacheHits(Stage stage) {
+        return cacheHits.get(stage.ordinal());
+    }
+
+    /**
+     * @param stage  the stage.
+     * @param result the result code of the resolver like <code>Lookup.TRY_AGAIN</code>.
+     * @return the count of the lookups of the stage with the given result.
+     */
+    public long getResultCount(Stage stage, int result) {
+        return result >= 0 && result < RESULTS ? results.get(stage.ordinal() * RESULTS + result) : 0;
+    }
+
+    /**
+     * @param status the final status.
+     * @return the count of the checks which ended with the given status.
+     */
+    public long getStatusCount(AddressStatus status) {
+        return statuses.get(status.ordinal());
+    }
+
+    /**
+     * @param stage the stage.
+     * @return a copy of the histogram of the uncached lookups of the stage.
+     * @see #BUCKETS
+     */
+    public long[] getHistogram(Stage stage) {
+        return copy(stageHistograms, stage.ordinal() * BUCKETS);
+    }
+
+    /**
+     * @return a copy of the histogram of the complete checks.
+     * @see #BUCKETS
+     */
+    public long[] getCheckHistogram() {
+        return copy(checkHistogram, 0);
+    }
+
+    /**
+     * Estimates a percentile of the uncached lookups of a stage.
+     *
+     * @param stage    the stage.
+     * @param quantile the quantile between 0 and 1, e.g. 0.99.
+     * @return the upper bound of the bucket which contains the percentile in nanoseconds or <code>0</code> if nothing was
+     * recorded.
+     */
+    public long getPercentile(Stage stage, double quantile) {
+        return percentile(getHistogram(stage), quantile);
+    }
+
+    /**
+     * Estimates a percentile of the complete checks.
+     *
+     * @param quantile the quantile between 0 and 1, e.g. 0.99.
+     * @return the upper bound of the bucket which contains the percentile in nanoseconds or <code>0</code> if nothing was
+     * recorded.
+     */
+    public long getCheckPercentile(double quantile) {
+        return percentile(getCheckHistogram(), quantile);
+    }
+
+    /**
+     * Resets all counters. Values which are recorded concurrently may get lost.
+     */
+    public void reset() {
+        for(AtomicLongArray array : new AtomicLongArray[]{stageHistograms, results, cacheHits, checkHistogram, statuses}) {
+            for(int i = 0; i < array.length(); i++) {
+                array.set(i, 0);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ValidationMetrics{");
+        for(Stage stage : STAGES) {
+            long failed = getResultCount(stage, Lookup.TRY_AGAIN) + getResultCount(stage, Lookup.UNRECOVERABLE)
+                    + getResultCount(stage, DnsAnswer.SERVER_FAILURE);
+            sb.append(stage).append(": ").append(getCount(stage)).append(" lookups, ").append(getCacheHits(stage))
+                    .append(" cached, ").append(failed).append(" failed, p50=").append(getPercentile(stage, 0.5) / 1000)
+                    .append("us p99=").append(getPercentile(stage, 0.99) / 1000).append("us; ");
+        }
+        sb.append("checks: p50=").append(getCheckPercentile(0.5) / 1000).append("us p99=")
+                .append(getCheckPercentile(0.99) / 1000).append("us");
+        for(AddressStatus status : STATUSES) {
+            long count = getStatusCount(status);
+            if(count > 0) {
+                sb.append(", ").append(status).append('=').append(count);
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * @param duration the duration in nanoseconds.
+     * @return the bucket of the duration.
+     */
+    private static int bucket(long duration) {
+        return duration <= 0 ? 0 : Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(duration));
+    }
+
+    private static long[] copy(AtomicLongArray array, int offset) {
+        long[] copy = new long[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++) {
+            copy[i] = array.get(offset + i);
+        }
+        return copy;
+    }
+
+    private static long percentile(long[] histogram, double quantile) {
+        long total = 0;
+        for(long count : histogram) {
+            total += count;
+        }
+        if(total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for(int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if(seen >= rank && seen > 0) {
+                return i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
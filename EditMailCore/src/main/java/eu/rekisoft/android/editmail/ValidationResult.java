@@ -0,0 +1,95 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import java.util.Locale;
+
+import eu.rekisoft.android.editmail.MailChecker.AddressStatus;
+import eu.rekisoft.android.editmail.MailChecker.Verdict;
+
+/**
+ * The immutable result of a mail address validation. Unlike the AddressStatus it can be shared between threads.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public final class ValidationResult {
+    private final String input;
+    private final String address;
+    private final AddressStatus status;
+    private final String suggestion;
+    private final long duration;
+
+    /**
+     * Creates a new ValidationResult.
+     *
+     * @param input    the input mail address.
+     * @param domain   the domain of the mail address in its ASCII form or <code>null</code> if the mail address is malformed.
+     * @param verdict  the verdict of the domain check.
+     * @param duration the duration of the validation in nanoseconds.
+     */
+    ValidationResult(String input, String domain, Verdict verdict, long duration) {
+        this.input = input;
+        if(domain == null) {
+            address = input;
+        } else {
+            address = input.substring(0, input.lastIndexOf('@') + 1) + domain.toLowerCase(Locale.US);
+        }
+        status = verdict.status;
+        suggestion = verdict.suggest(input);
+        this.duration = duration;
+    }
+
+    /**
+     * @return the input mail address.
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * @return the mail address with the domain in its lower case ASCII form or the input if the mail address is malformed.
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * @return the status of the validation.
+     */
+    public AddressStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the suggested mail address in case of a detected typo, otherwise <code>null</code>.
+     */
+    public String getSuggestion() {
+        return suggestion;
+    }
+
+    /**
+     * @return the duration of the validation in nanoseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return <code>true</code> unless the status is valid or typoDetected, so also for a pending or unknown status.
+     * @see AddressStatus#wrong()
+     */
+    public boolean wrong() {
+        return status.wrong();
+    }
+
+    @Override
+    public String toString() {
+        return address + ": " + status + (suggestion == null ? "" : " (" + suggestion + ")");
+    }
+}
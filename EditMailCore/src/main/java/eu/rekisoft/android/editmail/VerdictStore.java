@@ -0,0 +1,195 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.rekisoft.android.editmail.DomainCache.Answer;
+
+/**
+ * Persists the answers of a {@link DomainCache} in a small binary file, so that the first checks after a restart can be answered
+ * without DNS lookups. The file is read lazily on the first lookup of the cache, new answers are collected and written in the
+ * background after a short delay. Expired answers are neither loaded nor written.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+final class VerdictStore {
+    /**
+     * The maximal count of persisted answers.
+     */
+    static final int MAX_ENTRIES = 1024;
+    /**
+     * The time in milliseconds new answers are collected before they are written.
+     */
+    static final long WRITE_DELAY = 2000;
+    private static final int MAGIC = 0x454d5631; // "EMV1"
+
+    private final File file;
+    private final DomainCache cache;
+    private final LinkedHashMap<String, Answer> entries = new LinkedHashMap<String, Answer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Answer> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final Object writeLock = new Object();
+    private volatile boolean loaded;
+    private boolean scheduled;
+
+    /**
+     * Creates a new VerdictStore, the file is not touched until the first lookup.
+     *
+     * @param file  the file of the persisted answers.
+     * @param cache the cache which is filled with the persisted answers.
+     */
+    VerdictStore(File file, DomainCache cache) {
+        this.file = file;
+        this.cache = cache;
+    }
+
+    /**
+     * Reads the file once and restores the answers which are still valid into the cache.
+     */
+    void load() {
+        if(loaded) {
+            return;
+        }
+        synchronized(this) {
+            if(loaded) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                try {
+                    if(in.readInt() == MAGIC) {
+                        for(int count = in.readInt(); count > 0; count--) {
+                            String key = in.readUTF();
+                            Answer answer = new Answer(in.readBoolean(), in.readLong());
+                            Answer known = entries.get(key);
+                            if(answer.expires > now && (known == null || known.expires < answer.expires)) {
+                                entries.put(key, answer);
+                                cache.restore(key, answer);
+                            }
+                        }
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch(FileNotFoundException e) {
+                // nothing persisted yet
+            } catch(IOException e) {
+                // a broken file is simply overwritten with the next write
+            }
+            loaded = true;
+        }
+    }
+
+    /**
+     * Adds an answer, it is written with the next batch.
+     *
+     * @param key    the key of the cache entry.
+     * @param answer the answer.
+     */
+    void add(String key, Answer answer) {
+        synchronized(this) {
+            entries.put(key, answer);
+        }
+        schedule();
+    }
+
+    /**
+     * Removes all answers, the file is replaced with the next batch.
+     */
+    void clear() {
+        synchronized(this) {
+            entries.clear();
+            loaded = true;
+        }
+        schedule();
+    }
+
+    /**
+     * Starts the background write unless it is already pending.
+     */
+    private void schedule() {
+        synchronized(this) {
+            if(scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        MailChecker.daemonThreads("VerdictStore").newThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(WRITE_DELAY);
+                } catch(InterruptedException e) {
+                    // write immediately
+                }
+                flush();
+            }
+        }).start();
+    }
+
+    /**
+     * Writes all answers which are still valid. The file is replaced atomically, so a crash while writing keeps the old file.
+     */
+    void flush() {
+        // the persisted answers must not get lost if nothing was looked up yet
+        load();
+        List<String> keys = new ArrayList<String>();
+        List<Answer> answers = new ArrayList<Answer>();
+        synchronized(this) {
+            scheduled = false;
+            long now = System.currentTimeMillis();
+            for(Map.Entry<String, Answer> entry : entries.entrySet()) {
+                if(entry.getValue().expires > now) {
+                    keys.add(entry.getKey());
+                    answers.add(entry.getValue());
+                }
+            }
+        }
+        synchronized(writeLock) {
+            File temp = new File(file.getPath() + ".tmp");
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+                try {
+                    out.writeInt(MAGIC);
+                    out.writeInt(keys.size());
+                    for(int i = 0; i < keys.size(); i++) {
+                        out.writeUTF(keys.get(i));
+                        out.writeBoolean(answers.get(i).found);
+                        out.writeLong(answers.get(i).expires);
+                    }
+                } finally {
+                    out.close();
+                }
+                if(!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file))) {
+                    temp.delete();
+                }
+            } catch(IOException e) {
+                // the answers are written again with the next batch
+                temp.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import org.junit.Test;
+import org.xbill.DNS.Type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the TTL rules and the eviction of the {@link DomainCache}.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public class DomainCacheTest {
+    @Test
+    public void answersAreCachedPerDomainAndType() {
+        DomainCache cache = new DomainCache(16);
+        cache.put("example.com", Type.MX, true, 60);
+        assertEquals(Boolean.TRUE, cache.get("example.com", Type.MX));
+        assertEquals(Boolean.TRUE, cache.get("Example.COM", Type.MX));
+        assertNull(cache.get("example.com", Type.NS));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void negativeAnswersAreCachedForTheNegativeTtl() {
+        DomainCache cache = new DomainCache(16);
+        cache.put("example.com", Type.MX, false, 3600);
+        assertEquals(Boolean.FALSE, cache.get("example.com", Type.MX));
+        cache.setNegativeTtl(0);
+        cache.put("example.org", Type.MX, false, 3600);
+        assertNull(cache.get("example.org", Type.MX));
+    }
+
+    @Test
+    public void maxTtlLimitsOnlyPositiveAnswers() {
+        DomainCache cache = new DomainCache(16);
+        cache.setMaxTtl(0);
+        cache.put("example.com", Type.MX, true, 3600);
+        cache.put("example.org", Type.MX, false, 3600);
+        assertNull(cache.get("example.com", Type.MX));
+        assertEquals(Boolean.FALSE, cache.get("example.org", Type.MX));
+    }
+
+    @Test
+    public void answersWithoutTtlAreNotCached() {
+        DomainCache cache = new DomainCache(16);
+        cache.put("example.com", Type.MX, true, 0);
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void expiredAnswersAreDropped() {
+        DomainCache cache = new DomainCache(16);
+        cache.put(DomainCache.key("example.com", Type.MX), new DomainCache.Answer(true, System.currentTimeMillis() - 1));
+        assertNull(cache.get("example.com", Type.MX));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void leastRecentlyUsedAnswerIsEvicted() {
+        DomainCache cache = new DomainCache(2);
+        cache.put("a.com", Type.MX, true, 60);
+        cache.put("b.com", Type.MX, true, 60);
+        cache.get("a.com", Type.MX);
+        cache.put("c.com", Type.MX, true, 60);
+        assertEquals(Boolean.TRUE, cache.get("a.com", Type.MX));
+        assertNull(cache.get("b.com", Type.MX));
+        assertEquals(Boolean.TRUE, cache.get("c.com", Type.MX));
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xbill.DNS.Type;
+
+import eu.rekisoft.android.editmail.MailChecker.AddressStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the {@link MailChecker} against a {@link ScriptedDnsResolver}, so the tests need no network.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public class MailCheckerTest {
+    private DnsResolver defaultResolver;
+    private ScriptedDnsResolver dns;
+
+    @Before
+    public void setUp() {
+        defaultResolver = MailChecker.getResolver();
+        dns = new ScriptedDnsResolver();
+        MailChecker.setResolver(dns);
+        MailChecker.setOfflineChecks(true);
+        MailChecker.getCache().clear();
+    }
+
+    @After
+    public void tearDown() {
+        MailChecker.setResolver(defaultResolver);
+        MailChecker.setOfflineChecks(true);
+        MailChecker.getCache().setNegativeTtl(DomainCache.DEFAULT_NEGATIVE_TTL);
+        MailChecker.getCache().clear();
+    }
+
+    @Test
+    public void answersAreCached() {
+        dns.mx("example.org", "mx.example.org").address("mx.example.org");
+        assertEquals(AddressStatus.valid, MailChecker.check("someone@example.org").getStatus());
+        assertEquals(AddressStatus.valid, MailChecker.check("other@example.org").getStatus());
+        assertEquals(1, dns.getQueryCount("example.org", Type.MX));
+    }
+
+    @Test
+    public void missingMxRecordIsCachedForTheNegativeTtl() {
+        dns.noMx("example.org");
+        assertEquals(AddressStatus.noMxRecord, MailChecker.check("someone@example.org").getStatus());
+        assertEquals(AddressStatus.noMxRecord, MailChecker.check("someone@example.org").getStatus());
+        assertEquals(1, dns.getQueryCount("example.org", Type.MX));
+
+        MailChecker.getCache().clear();
+        MailChecker.getCache().setNegativeTtl(0);
+        assertEquals(AddressStatus.noMxRecord, MailChecker.check("someone@example.org").getStatus());
+        assertEquals(AddressStatus.noMxRecord, MailChecker.check("someone@example.org").getStatus());
+        assertEquals(3, dns.getQueryCount("example.org", Type.MX));
+    }
+
+    @Test
+    public void networkErrorIsNeverCached() {
+        dns.tryAgain("example.org", Type.MX);
+        assertEquals(AddressStatus.unknown, MailChecker.check("someone@example.org").getStatus());
+        assertFalse(MailChecker.getCache().contains("example.org", Type.MX));
+
+        dns.mx("example.org", "mx.example.org").address("mx.example.org");
+        assertEquals(AddressStatus.valid, MailChecker.check("someone@example.org").getStatus());
+    }
+
+    @Test
+    public void networkErrorOfTheMailServersIsNeverCached() {
+        dns.mx("example.org", "mx.example.org").tryAgain("mx.example.org", Type.A).tryAgain("mx.example.org", Type.AAAA);
+        assertEquals(AddressStatus.unknown, MailChecker.check("someone@example.org").getStatus());
+        assertFalse(MailChecker.getCache().contains("example.org", Type.MX));
+
+        dns.address("mx.example.org");
+        assertEquals(AddressStatus.valid, MailChecker.check("someone@example.org").getStatus());
+    }
+
+    @Test
+    public void knownProviderNeedsNoQuery() {
+        assertEquals(AddressStatus.valid, MailChecker.check("someone@gmail.com").getStatus());
+        assertEquals(0, dns.getQueryCount());
+    }
+
+    @Test
+    public void typoInTheTopLevelDomainNeedsNoQuery() {
+        ValidationResult result = MailChecker.check("someone@gmx.nte");
+        assertEquals(AddressStatus.typoDetected, result.getStatus());
+        assertEquals("someone@gmx.net", result.getSuggestion());
+        assertEquals(0, dns.getQueryCount());
+    }
+
+    @Test
+    public void rareTopLevelDomainIsNotTakenForATypo() {
+        dns.answer("bet", Type.NS, DnsAnswer.found(ScriptedDnsResolver.DEFAULT_TTL, "a.nic.bet"))
+                .mx("gmx.bet", "mx.gmx.bet")
+                .address("mx.gmx.bet");
+        ValidationResult result = MailChecker.check("someone@gmx.bet");
+        assertEquals(AddressStatus.valid, result.getStatus());
+        assertNull(result.getSuggestion());
+        assertEquals(1, dns.getQueryCount("gmx.bet", Type.MX));
+    }
+
+    @Test
+    public void missingTopLevelDomainIsCheckedForTypos() {
+        ValidationResult result = MailChecker.check("someone@gmx.bzt");
+        assertEquals(AddressStatus.typoDetected, result.getStatus());
+        assertEquals("someone@gmx.net", result.getSuggestion());
+        // just the NS query of the top level domain
+        assertEquals(1, dns.getQueryCount());
+    }
+
+    @Test
+    public void missingTopLevelDomainWithoutTypoIsNotRegistered() {
+        assertEquals(AddressStatus.notRegistered, MailChecker.check("someone@nothing.bzt").getStatus());
+        assertEquals(1, dns.getQueryCount());
+    }
+
+    @Test
+    public void offlineChecksCanBeDisabled() {
+        MailChecker.setOfflineChecks(false);
+        dns.mx("gmail.com", "mx.gmail.com").address("mx.gmail.com");
+        assertEquals(AddressStatus.valid, MailChecker.check("someone@gmail.com").getStatus());
+        assertEquals(1, dns.getQueryCount("gmail.com", Type.MX));
+    }
+}
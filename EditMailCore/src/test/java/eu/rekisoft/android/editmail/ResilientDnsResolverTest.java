@@ -0,0 +1,112 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import org.junit.Test;
+import org.xbill.DNS.Lookup;
+import org.xbill.DNS.Type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the failover and the circuit breakers of the {@link ResilientDnsResolver} with {@link ScriptedDnsResolver}s.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+public class ResilientDnsResolverTest {
+    @Test
+    public void networkErrorFailsOverToTheNextResolver() {
+        ScriptedDnsResolver broken = new ScriptedDnsResolver().tryAgain("example.com", Type.MX);
+        ScriptedDnsResolver working = new ScriptedDnsResolver().mx("example.com", "mx.example.com");
+        ResilientDnsResolver resolver = new ResilientDnsResolver(broken, working);
+        assertTrue(resolver.query("example.com", Type.MX).isSuccessful());
+        assertEquals(1, resolver.getFailoverCount());
+        assertEquals(1, broken.getQueryCount());
+    }
+
+    @Test
+    public void breakerOpensAfterTheFailureThreshold() {
+        ScriptedDnsResolver broken = new ScriptedDnsResolver().tryAgain("example.com", Type.MX);
+        ResilientDnsResolver resolver = new ResilientDnsResolver(broken);
+        for(int i = 0; i < ResilientDnsResolver.FAILURE_THRESHOLD - 1; i++) {
+            assertEquals(Lookup.TRY_AGAIN, resolver.query("example.com", Type.MX).getResult());
+        }
+        assertTrue(resolver.isHealthy(0));
+        assertEquals(Lookup.TRY_AGAIN, resolver.query("example.com", Type.MX).getResult());
+        assertFalse(resolver.isHealthy(0));
+        assertFalse(resolver.isAvailable());
+
+        // an open breaker fails at once without asking the resolver
+        assertEquals(Lookup.TRY_AGAIN, resolver.query("example.com", Type.MX).getResult());
+        assertEquals(ResilientDnsResolver.FAILURE_THRESHOLD, broken.getQueryCount());
+        assertEquals(1, resolver.getShortCircuitCount());
+    }
+
+    @Test
+    public void successfulProbeClosesTheBreaker() throws InterruptedException {
+        ScriptedDnsResolver broken = new ScriptedDnsResolver().tryAgain("example.com", Type.MX);
+        ResilientDnsResolver resolver = open(broken);
+        broken.mx("example.com", "mx.example.com");
+        Thread.sleep(ResilientDnsResolver.OPEN_TIME + 100);
+        assertTrue(resolver.isAvailable());
+        assertTrue(resolver.query("example.com", Type.MX).isSuccessful());
+        assertTrue(resolver.isHealthy(0));
+    }
+
+    @Test
+    public void failedProbeKeepsTheBreakerOpen() throws InterruptedException {
+        ScriptedDnsResolver broken = new ScriptedDnsResolver().tryAgain("example.com", Type.MX);
+        ResilientDnsResolver resolver = open(broken);
+        Thread.sleep(ResilientDnsResolver.OPEN_TIME + 100);
+        assertEquals(Lookup.TRY_AGAIN, resolver.query("example.com", Type.MX).getResult());
+        assertFalse(resolver.isHealthy(0));
+        assertFalse(resolver.isAvailable());
+        assertEquals(ResilientDnsResolver.FAILURE_THRESHOLD + 1, broken.getQueryCount());
+    }
+
+    @Test
+    public void serverFailureKeepsTheBreakerClosed() {
+        ScriptedDnsResolver servfail = new ScriptedDnsResolver().serverFailure("example.com", Type.MX);
+        ResilientDnsResolver resolver = new ResilientDnsResolver(servfail);
+        for(int i = 0; i < ResilientDnsResolver.FAILURE_THRESHOLD * 2; i++) {
+            assertEquals(DnsAnswer.SERVER_FAILURE, resolver.query("example.com", Type.MX).getResult());
+        }
+        assertTrue(resolver.isHealthy(0));
+        assertEquals(0, resolver.getFailoverCount());
+    }
+
+    @Test
+    public void latenciesAreKeptForTheRecentQueries() {
+        ScriptedDnsResolver working = new ScriptedDnsResolver().mx("example.com", "mx.example.com");
+        ResilientDnsResolver resolver = new ResilientDnsResolver(working);
+        assertEquals(-1, resolver.getLatency(0, 0.5));
+        for(int i = 0; i < 100; i++) {
+            resolver.query("example.com", Type.MX);
+        }
+        assertTrue(resolver.getLatency(0, 0.5) >= 0);
+        assertEquals(0, resolver.getFailureRate(0), 0);
+    }
+
+    /**
+     * Creates a resolver and opens its breaker.
+     *
+     * @param broken the resolver which fails.
+     * @return the resolver with the open breaker.
+     */
+    private static ResilientDnsResolver open(ScriptedDnsResolver broken) {
+        ResilientDnsResolver resolver = new ResilientDnsResolver(broken);
+        for(int i = 0; i < ResilientDnsResolver.FAILURE_THRESHOLD; i++) {
+            resolver.query("example.com", Type.MX);
+        }
+        assertFalse(resolver.isHealthy(0));
+        return resolver;
+    }
+}
@@ -14,7 +14,9 @@ import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.os.Build;
 import android.os.Build.VERSION_CODES;
+import android.os.SystemClock;
 import android.text.Editable;
+import android.text.Selection;
 import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.util.AttributeSet;
@@ -26,7 +28,10 @@ import android.widget.EditText;
 import android.widget.TextView;
 
 import java.lang.reflect.Field;
-import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import eu.rekisoft.android.editmail.MailChecker.AddressStatus;
 import eu.rekisoft.android.util.LazyWorker;
@@ -42,16 +47,34 @@ import eu.rekisoft.android.util.UiWorker;
  */
 public class EditMail extends EditText {
     /**
-     * The delay for beginning a lookup if the email address is fine
+     * The default delay for beginning a lookup if the email address is fine
      */
-    private static final int SEARCH_DELAY = 300;
+    public static final int SEARCH_DELAY = 300;
     /**
-     * The delay for showing the results after getting the lookup data. This should prevent messages while typing
+     * The default delay for showing the results after getting the lookup data. This should prevent messages while typing
      */
-    private static final int SHOW_DELAY = 1200;
-    private final ArrayList<StatusChangedListener> observers = new ArrayList<EditMail.StatusChangedListener>();
+    public static final int SHOW_DELAY = 1200;
+    /**
+     * The time after which a lookup gives up, the address is then treated like in case of network trouble.
+     */
+    private static final int CHECK_TIMEOUT = 10000;
+    /**
+     * The limits of the adaptive search delay.
+     */
+    private static final long MIN_SEARCH_DELAY = 150;
+    private static final long MAX_SEARCH_DELAY = 1500;
+    /**
+     * Pauses between key strokes which are longer than this are not used for learning the typing speed.
+     */
+    private static final long MAX_TYPING_INTERVAL = 2000;
+    /**
+     * The lookup latency from which on the adaptive search delay waits for the longest pause.
+     */
+    private static final long SLOW_LOOKUP = 1000;
+    private final StatusDispatcher dispatcher = new StatusDispatcher(AddressStatus.unknown);
 
-    private AddressStatus status = AddressStatus.unknown;
+    private volatile AddressStatus status = AddressStatus.unknown;
+    private Helper helper;
 
     /**
      * Simple constructor to use when creating a EditMail from code.
@@ -95,7 +118,6 @@ public class EditMail extends EditText {
 
         setInputType(getInputType() | EditorInfo.TYPE_TEXT_VARIATION_EMAIL_ADDRESS);
 
-        Helper helper;
         if(BuildConfig.DEBUG) {
             if(isInEditMode()) {
                 return;
@@ -110,20 +132,138 @@ public class EditMail extends EditText {
             MailChecker.setDomainList((String[]) domains);
         }
 
+        int searchDelay = a.getInt(R.styleable.EmailPreference_searchDelay, SEARCH_DELAY);
+        int showDelay = a.getInt(R.styleable.EmailPreference_showDelay, SHOW_DELAY);
+        boolean adaptiveDelay = a.getBoolean(R.styleable.EmailPreference_adaptiveDelay, false);
+        boolean prefetch = a.getBoolean(R.styleable.EmailPreference_prefetch, false);
+        boolean autocomplete = a.getBoolean(R.styleable.EmailPreference_autocomplete, false);
+
         a.recycle();
 
         helper = new Helper(this, new StatusChangedListener() {
             @Override
             public void statusChanged(AddressStatus status) {
                 EditMail.this.status = status;
-                for(StatusChangedListener l : observers) {
-                    l.statusChanged(status);
-                }
+                dispatcher.post(status);
             }
         });
+        helper.searchDelay = searchDelay;
+        helper.showDelay = showDelay;
+        helper.adaptiveDelay = adaptiveDelay;
+        helper.prefetcher = prefetch ? new DomainPrefetcher(DomainPrefetcher.DEFAULT_BUDGET) : null;
+        helper.autocomplete = autocomplete;
         addTextChangedListener(helper);
     }
 
+    /**
+     * Set the delay between the last change of the text and the beginning of the lookup. In the adaptive mode this is the delay
+     * until the typing speed of the user is known.
+     *
+     * @param millis the delay in milliseconds, the default is {@link #SEARCH_DELAY}.
+     */
+    public void setSearchDelay(int millis) {
+        if(helper != null) {
+            helper.searchDelay = Math.max(0, millis);
+        }
+    }
+
+    /**
+     * @return the delay between the last change of the text and the beginning of the lookup in milliseconds.
+     */
+    public int getSearchDelay() {
+        return helper == null ? SEARCH_DELAY : helper.searchDelay;
+    }
+
+    /**
+     * Set the delay between the end of the lookup and showing an error. In the adaptive mode this is the upper limit.
+     *
+     * @param millis the delay in milliseconds, the default is {@link #SHOW_DELAY}.
+     */
+    public void setShowDelay(int millis) {
+        if(helper != null) {
+            helper.showDelay = Math.max(0, millis);
+        }
+    }
+
+    /**
+     * @return the delay between the end of the lookup and showing an error in milliseconds.
+     */
+    public int getShowDelay() {
+        return helper == null ? SHOW_DELAY : helper.showDelay;
+    }
+
+    /**
+     * Enables the adaptive delays. The lookup starts when the user pauses a little longer than usual between two key strokes, the
+     * pause is longer on slow networks to avoid wasted lookups. Errors are shown as soon as the user seems to have stopped typing.
+     *
+     * @param adaptive <code>true</code> to adapt the delays to the typing speed and the network latency.
+     */
+    public void setAdaptiveDelay(boolean adaptive) {
+        if(helper != null) {
+            helper.adaptiveDelay = adaptive;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the delays adapt to the typing speed and the network latency.
+     */
+    public boolean isAdaptiveDelay() {
+        return helper != null && helper.adaptiveDelay;
+    }
+
+    /**
+     * Enables the prefetching. While the domain is typed the best matching domains of the domain list and the recently validated
+     * domains are looked up in the background, so that the result is known when the user stops typing. This costs some lookups
+     * of domains which are not used in the end, see {@link #setPrefetchBudget(int)}.
+     *
+     * @param prefetch <code>true</code> to prefetch the typed domain.
+     */
+    public void setPrefetch(boolean prefetch) {
+        if(helper != null && prefetch != (helper.prefetcher != null)) {
+            helper.prefetcher = prefetch ? new DomainPrefetcher(DomainPrefetcher.DEFAULT_BUDGET) : null;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the typed domain is prefetched.
+     */
+    public boolean isPrefetch() {
+        return helper != null && helper.prefetcher != null;
+    }
+
+    /**
+     * Limits the count of domains which are prefetched, every prefetch usually costs one MX and one address lookup. The budget is
+     * renewed when the field gets cleared.
+     *
+     * @param domains the count of domains, the default is 8.
+     */
+    public void setPrefetchBudget(int domains) {
+        DomainPrefetcher prefetcher = helper == null ? null : helper.prefetcher;
+        if(prefetcher != null) {
+            prefetcher.setBudget(domains);
+        }
+    }
+
+    /**
+     * Enables the inline auto completion. As soon as the <code>@</code> is typed the domain is completed with the best matching
+     * domain of the recently validated domains and the domain list, see {@link MailChecker#setDomainList(String[])}. The completed
+     * part is selected, so typing on replaces it.
+     *
+     * @param autocomplete <code>true</code> to complete the domain while typing.
+     */
+    public void setAutocomplete(boolean autocomplete) {
+        if(helper != null) {
+            helper.autocomplete = autocomplete;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the domain is completed while typing.
+     */
+    public boolean isAutocomplete() {
+        return helper != null && helper.autocomplete;
+    }
+
     /**
      * @return <code>true</code> if the resolver status is AddressStatus.valid.
      */
@@ -139,13 +279,14 @@ public class EditMail extends EditText {
     }
 
     /**
-     * Adds a StatusChangedListener to this EditMail.
+     * Adds a StatusChangedListener to this EditMail. The listeners are invoked on the main thread, at most once per frame and only
+     * if the status has changed.
      *
      * @param listener The StatusChangedListener to add.
      * @return always <code>true</code>.
      */
     public boolean addStatusChangedListener(StatusChangedListener listener) {
-        return observers.add(listener);
+        return dispatcher.add(listener);
     }
 
     /**
@@ -156,7 +297,22 @@ public class EditMail extends EditText {
      * <code>false</code> otherwise.
      */
     public boolean removeStatusChangedListener(StatusChangedListener listener) {
-        return observers.remove(listener);
+        return dispatcher.remove(listener);
+    }
+
+    /**
+     * @return the count of status changes which were delivered to the listeners.
+     */
+    public long getDeliveredStatusCount() {
+        return dispatcher.getDeliveredCount();
+    }
+
+    /**
+     * @return the count of status updates which were not delivered to the listeners, because they did not change the status or
+     * were replaced by a newer status within the same frame.
+     */
+    public long getSuppressedStatusCount() {
+        return dispatcher.getSuppressedCount();
     }
 
     /**
@@ -170,6 +326,58 @@ public class EditMail extends EditText {
         private String suggestion;
         private String currentError;
         private final StatusChangedListener observer;
+        /**
+         * The generation of the text, it is increased on every change. Checks of older generations are abandoned.
+         */
+        private final AtomicInteger generation = new AtomicInteger();
+        /**
+         * The text of the current generation.
+         */
+        private volatile String text;
+        /**
+         * The generation of the currentError.
+         */
+        private volatile int errorGeneration;
+        /**
+         * The generation which was checked last, so that every generation is checked at most once.
+         */
+        private int checkedGeneration = -1;
+        /**
+         * The running check, it is canceled as soon as the text changes.
+         */
+        private volatile Future<ValidationResult> pending;
+        /**
+         * The configured delays in milliseconds.
+         */
+        private volatile int searchDelay = SEARCH_DELAY;
+        private volatile int showDelay = SHOW_DELAY;
+        private volatile boolean adaptiveDelay;
+        /**
+         * The time of the last key stroke and the smoothed interval between key strokes in milliseconds.
+         */
+        private volatile long lastKeyStroke;
+        private volatile long typingInterval = -1;
+        /**
+         * The smoothed duration of the recent lookups in milliseconds.
+         */
+        private volatile long lookupLatency;
+        /**
+         * The prefetcher of the typed domain or <code>null</code> if prefetching is disabled.
+         */
+        private volatile DomainPrefetcher prefetcher;
+        /**
+         * If the domain is completed while typing.
+         */
+        private volatile boolean autocomplete;
+        /**
+         * If the last change typed text at the end, only then the domain is completed. Typing over the selected completion replaces
+         * it, a deletion never completes.
+         */
+        private boolean appended;
+        /**
+         * If the completion is currently inserted, so that this change is ignored.
+         */
+        private boolean completing;
 
         /**
          * Creates a new instance of EditMail.Helper.
@@ -189,16 +397,18 @@ public class EditMail extends EditText {
         private final Runnable doCheck = new Runnable() {
             @Override
             public void run() {
-                Editable txt = mail.getText();
-                if(TextUtils.isEmpty(txt)) {
-                    observer.statusChanged(AddressStatus.unknown);
+                final int current = generation.get();
+                if(current == checkedGeneration) {
                     return;
                 }
-                final String mail = txt.toString().trim();
-                boolean okay = !TextUtils.isEmpty(mail) && TextUtils.isGraphic(mail);
-                if(okay) {
-                    checkMailAddress(mail);
+                checkedGeneration = current;
+                final String txt = text;
+                final String mail = txt == null ? null : txt.trim();
+                if(TextUtils.isEmpty(mail)) {
+                    observer.statusChanged(AddressStatus.unknown);
+                    return;
                 }
+                checkMailAddress(mail, current);
             }
         };
 
@@ -210,13 +420,96 @@ public class EditMail extends EditText {
 
         @Override
         public void onTextChanged(CharSequence s, int start, int before, int count) {
+            // the typed character replaces the selected completion, so before may be larger than count
+            appended = count > 0 && start + count == s.length();
         }
 
         @Override
         public void afterTextChanged(Editable s) {
+            if(completing) {
+                return;
+            }
+            if(autocomplete && appended) {
+                complete(s);
+            }
             // When the change is done set the internal status to pending and invoke doCheck delayed.
+            text = s.toString();
+            generation.incrementAndGet();
+            Future<ValidationResult> check = pending;
+            if(check != null) {
+                check.cancel(false);
+            }
             observer.statusChanged(AddressStatus.pending);
-            LazyWorker.getSharedInstance().doLater(doCheck, SEARCH_DELAY);
+            DomainPrefetcher prefetcher = this.prefetcher;
+            if(prefetcher != null) {
+                prefetcher.onInput(text);
+            }
+            LazyWorker.getSharedInstance().doLater(doCheck, nextSearchDelay());
+        }
+
+        /**
+         * Appends the best completion of the typed domain and selects it.
+         *
+         * @param s the text of the field.
+         */
+        private void complete(Editable s) {
+            String typed = s.toString();
+            int at = typed.lastIndexOf('@');
+            if(at < 0 || Selection.getSelectionEnd(s) != s.length()) {
+                return;
+            }
+            String prefix = typed.substring(at + 1).toLowerCase(Locale.US);
+            String completion = MailChecker.completeDomain(prefix);
+            if(completion == null || completion.length() <= prefix.length()) {
+                return;
+            }
+            completing = true;
+            try {
+                s.append(completion, prefix.length(), completion.length());
+                Selection.setSelection(s, typed.length(), s.length());
+            } finally {
+                completing = false;
+            }
+        }
+
+        /**
+         * Learns the typing speed and calculates the delay for the next lookup. Without the adaptive mode this is the configured
+         * delay.
+         *
+         * @return the delay in milliseconds.
+         */
+        private long nextSearchDelay() {
+            long now = SystemClock.uptimeMillis();
+            long interval = now - lastKeyStroke;
+            lastKeyStroke = now;
+            if(interval < MAX_TYPING_INTERVAL) {
+                // longer pauses are breaks and not the typing speed
+                typingInterval = typingInterval < 0 ? interval : (3 * typingInterval + interval) / 4;
+            }
+            if(!adaptiveDelay || typingInterval < 0) {
+                return searchDelay;
+            }
+            // wait for a pause of 1.5 key strokes, up to 3 on slow networks where each wasted lookup hurts
+            long factor = 150 + 150 * Math.min(lookupLatency, SLOW_LOOKUP) / SLOW_LOOKUP;
+            return Math.max(MIN_SEARCH_DELAY, Math.min(MAX_SEARCH_DELAY, typingInterval * factor / 100));
+        }
+
+        /**
+         * Calculates the delay for showing the result. In the adaptive mode the result is shown once the user paused for four key
+         * strokes, at most after the configured delay.
+         *
+         * @param latency the duration of the lookup in milliseconds, zero if nothing was looked up.
+         * @return the delay in milliseconds.
+         */
+        private long nextShowDelay(long latency) {
+            if(latency > 0) {
+                lookupLatency = (3 * lookupLatency + latency) / 4;
+            }
+            if(!adaptiveDelay || typingInterval < 0) {
+                return showDelay;
+            }
+            long paused = SystemClock.uptimeMillis() - lastKeyStroke;
+            return Math.max(0, Math.min(showDelay, 4 * typingInterval - paused));
         }
 
         // this listener is invoked by the popup "Did you mean xyz@example.com?".
@@ -224,6 +517,7 @@ public class EditMail extends EditText {
         public boolean onTouch(View v, MotionEvent event) {
             v.setOnTouchListener(null);
             if(suggestion != null) {
+                MailChecker.acceptSuggestion(text, suggestion);
                 mail.setText(suggestion);
                 mail.setSelection(suggestion.length());
                 mail.setError(null);
@@ -238,6 +532,10 @@ public class EditMail extends EditText {
         // Well a little hackish made but it works :-)
         @Override
         protected void doWork(EditText mail) {
+            if(errorGeneration != generation.get()) {
+                // the error belongs to an outdated text
+                return;
+            }
             mail.setError(currentError);
             try {
                 Field mErrorPopup;
@@ -265,15 +563,44 @@ public class EditMail extends EditText {
         }
 
         /**
-         * The check if the email address is valid. The result is set to currentError.
+         * Starts the check if the email address is valid. Broken addresses are rejected right away, the others are checked in the
+         * background so that the shared LazyWorker is not blocked by the lookups.
          *
          * @param address The email address to check.
+         * @param current The generation of the email address.
          */
-        private void checkMailAddress(String address) {
-            AddressStatus result = MailChecker.validate(address);
+        private void checkMailAddress(String address, final int current) {
+            final int syntax = AddressSyntax.scan(address);
+            if(AddressSyntax.category(syntax) != AddressSyntax.VALID) {
+                showResult(AddressStatus.wrongSchema, syntax, null, current, 0);
+                return;
+            }
+            pending = MailChecker.validateAsync(address, null, CHECK_TIMEOUT, new MailChecker.ResultListener() {
+                @Override
+                public void onResult(ValidationResult result) {
+                    showResult(result.getStatus(), syntax, result.getSuggestion(), current,
+                            TimeUnit.NANOSECONDS.toMillis(result.getDuration()));
+                }
+            });
+        }
+
+        /**
+         * Sets the result to currentError and shows it delayed, unless the text was changed in the meantime.
+         *
+         * @param status     The status of the email address.
+         * @param syntax     The result of the syntax check.
+         * @param suggestion The suggested email address in case of a typo.
+         * @param current    The generation of the email address.
+         * @param latency    The duration of the lookup in milliseconds.
+         */
+        private void showResult(AddressStatus status, int syntax, String suggestion, int current, long latency) {
+            if(generation.get() != current) {
+                // the text was changed, the next check is already scheduled
+                return;
+            }
             Resources res = mail.getResources();
-            suggestion = null;
-            switch(result) {
+            this.suggestion = null;
+            switch(status) {
                 case noMxRecord:
                     currentError = res.getString(R.string.email_no_mx);
                     break;
@@ -281,11 +608,11 @@ public class EditMail extends EditText {
                     currentError = res.getString(R.string.email_domain_unknown);
                     break;
                 case typoDetected:
-                    currentError = res.getString(R.string.email_did_you_mean, result.getMailAddress());
-                    suggestion = result.getMailAddress();
+                    currentError = res.getString(R.string.email_did_you_mean, suggestion);
+                    this.suggestion = suggestion;
                     break;
                 case wrongSchema:
-                    if(!address.contains("@") || !address.contains(".")) {
+                    if(AddressSyntax.isIncomplete(AddressSyntax.category(syntax))) {
                         currentError = res.getString(R.string.email_address_incomplete);
                     } else {
                         currentError = res.getString(R.string.email_schema_error);
@@ -298,10 +625,11 @@ public class EditMail extends EditText {
                     break;
             }
 
-            observer.statusChanged(result);
+            errorGeneration = current;
+            observer.statusChanged(status);
 
-            // inform the user a little later about errors
-            LazyWorker.getSharedInstance().doLater(this, SHOW_DELAY);
+            // inform the user a little later about errors, the UiWorker shows them on the UI thread
+            LazyWorker.getSharedInstance().doLater(this, nextShowDelay(latency));
         }
 
     }
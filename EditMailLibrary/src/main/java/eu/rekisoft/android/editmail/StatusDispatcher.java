@@ -0,0 +1,129 @@
+/**
+ * @copyright
+ * This code is licensed under the Rekisoft Public License.
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+package eu.rekisoft.android.editmail;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import eu.rekisoft.android.editmail.EditMail.StatusChangedListener;
+import eu.rekisoft.android.editmail.MailChecker.AddressStatus;
+
+/**
+ * Delivers the status changes of an {@link EditMail} to its listeners on the main thread. A status can be posted from any thread;
+ * all statuses posted within one frame are coalesced into the latest one, which is only delivered if it differs from the
+ * previously delivered status. The listeners are kept in a copy on write array, so they can be added and removed at any time and
+ * a delivery does not allocate anything.
+ *
+ * @author René Kilczan
+ * @version 1.0
+ * @copyright This code is licensed under the Rekisoft Public License.<br/>
+ * See http://www.rekisoft.eu/licenses/rkspl.html for more informations.
+ */
+final class StatusDispatcher implements Runnable {
+    /**
+     * The duration of a frame in milliseconds, statuses posted within this time are delivered at once.
+     */
+    private static final long FRAME = 16;
+    private static final StatusChangedListener[] NO_LISTENERS = {};
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong posted = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private volatile StatusChangedListener[] listeners = NO_LISTENERS;
+    private volatile AddressStatus latest;
+    /**
+     * The status which was delivered last, only accessed on the main thread.
+     */
+    private AddressStatus current;
+
+    /**
+     * Creates a new StatusDispatcher.
+     *
+     * @param initial the status the listeners already know.
+     */
+    StatusDispatcher(AddressStatus initial) {
+        current = initial;
+        latest = initial;
+    }
+
+    /**
+     * Posts a status, it is delivered with the next frame unless a newer status is posted before.
+     *
+     * @param status the new status.
+     */
+    void post(AddressStatus status) {
+        latest = status;
+        posted.incrementAndGet();
+        if(scheduled.compareAndSet(false, true)) {
+            handler.postDelayed(this, FRAME);
+        }
+    }
+
+    @Override
+    public void run() {
+        // cleared before reading the status, so that a status posted meanwhile schedules the next delivery
+        scheduled.set(false);
+        AddressStatus status = latest;
+        if(status == current) {
+            return;
+        }
+        current = status;
+        delivered.incrementAndGet();
+        for(StatusChangedListener listener : listeners) {
+            listener.statusChanged(status);
+        }
+    }
+
+    /**
+     * @param listener the listener to add.
+     * @return always <code>true</code>.
+     */
+    synchronized boolean add(StatusChangedListener listener) {
+        StatusChangedListener[] old = listeners;
+        StatusChangedListener[] updated = new StatusChangedListener[old.length + 1];
+        System.arraycopy(old, 0, updated, 0, old.length);
+        updated[old.length] = listener;
+        listeners = updated;
+        return true;
+    }
+
+    /**
+     * @param listener the listener to remove.
+     * @return <code>true</code> if the listener was registered.
+     */
+    synchronized boolean remove(StatusChangedListener listener) {
+        StatusChangedListener[] old = listeners;
+        for(int i = 0; i < old.length; i++) {
+            if(old[i].equals(listener)) {
+                StatusChangedListener[] updated = old.length == 1 ? NO_LISTENERS : new StatusChangedListener[old.length - 1];
+                System.arraycopy(old, 0, updated, 0, i);
+                System.arraycopy(old, i + 1, updated, i, old.length - i - 1);
+                listeners = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the count of delivered status changes.
+     */
+    long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * @return the count of posted statuses which were not delivered, because they were replaced within the same frame or did not
+     * change the status.
+     */
+    long getSuppressedCount() {
+        return posted.get() - delivered.get();
+    }
+}